@@ -0,0 +1,49 @@
+package com.kiron.amtrakTracker.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BenchmarkMain {
+    /*
+    Runs the benchmarks like the JMH launcher, but results are written as JSON to jmh-result.json unless -rf or -rff
+    say otherwise, so runs of different releases can be compared. The fixtures are generated before forking if
+    missing, and every fork reads them from the same absolute directory
+     */
+
+    public static void main(String[] args) throws CommandLineOptionException, IOException, RunnerException {
+        CommandLineOptions cmdOptions = new CommandLineOptions(args);
+        if (cmdOptions.shouldHelp()) {
+            cmdOptions.showHelp();
+            return;
+        }
+        if (cmdOptions.shouldList()) {
+            new Runner(cmdOptions).list();
+            return;
+        }
+        Path fixtures = Fixtures.dir();
+
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(cmdOptions);
+        if (!cmdOptions.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!cmdOptions.getResult().hasValue()) {
+            options.result("jmh-result.json");
+        }
+        List<String> jvmArgs = new ArrayList<>(cmdOptions.getJvmArgsAppend().orElse(List.of()));
+        jvmArgs.add("-D" + Fixtures.DIR_PROPERTY + "=" + fixtures);
+        jvmArgs.add("-D" + Fixtures.STATION_PROPERTY + "=" + Fixtures.largeStation());
+        options.jvmArgsAppend(jvmArgs.toArray(new String[0]));
+
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,24 @@
+package com.kiron.amtrakTracker.benchmark;
+
+import com.kiron.amtrakTracker.model.realtime.FeedSnapshot;
+import com.kiron.amtrakTracker.model.realtime.RealtimeAgency;
+import com.kiron.amtrakTracker.service.FeedSnapshotService;
+
+import java.time.Instant;
+
+public class FixtureFeedSnapshotService implements FeedSnapshotService {
+    /*
+    Serves the recorded Amtrak GTFS-RT snapshot, the other feeds are empty
+     */
+    private final FeedSnapshot amtrak = new FeedSnapshot(RealtimeAgency.AMTRAK, 1, Instant.now(), Fixtures.feed());
+
+    @Override
+    public FeedSnapshot getSnapshot(RealtimeAgency agency) {
+        return agency == RealtimeAgency.AMTRAK ? amtrak : FeedSnapshot.empty(agency);
+    }
+
+    @Override
+    public void refreshFeeds() {
+        //The fixtures do not change while a benchmark runs
+    }
+}
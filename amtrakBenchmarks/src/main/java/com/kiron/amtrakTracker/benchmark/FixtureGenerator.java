@@ -0,0 +1,239 @@
+package com.kiron.amtrakTracker.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.transit.realtime.GtfsRealtime.FeedEntity;
+import com.google.transit.realtime.GtfsRealtime.FeedHeader;
+import com.google.transit.realtime.GtfsRealtime.FeedMessage;
+import com.google.transit.realtime.GtfsRealtime.TripDescriptor;
+import com.google.transit.realtime.GtfsRealtime.TripUpdate;
+import com.google.transit.realtime.GtfsRealtime.TripUpdate.StopTimeEvent;
+import com.google.transit.realtime.GtfsRealtime.TripUpdate.StopTimeUpdate;
+import com.kiron.amtrakTracker.model.TrainApiModel;
+import com.kiron.amtrakTracker.model.TrainArDep;
+import com.kiron.amtrakTracker.model.TrainLocation;
+import com.kiron.amtrakTracker.model.TrainStop;
+import com.kiron.amtrakTracker.model.gtfs.GTFSTime;
+import com.kiron.amtrakTracker.model.gtfs.Station;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+@Slf4j
+public final class FixtureGenerator {
+    /*
+    Writes fixtures shaped like the Amtrak feeds, used when no recordings are available. The output is the same for
+    a given seed and day: about 60 routes over the Amtrak stations, 1800 trips and 40 thousand stop times, with half
+    of the routes through the large station. Around 40% of the trips get a TripUpdate for today and every tenth of
+    those one for yesterday as well, the /map dump has a train for the first 150 of them
+     */
+    private static final ZoneId ZONE = ZoneId.of("America/New_York");
+    private static final long SEED = 22;
+    private static final int ROUTES = 60;
+    private static final int MAP_TRAINS = 150;
+
+    private FixtureGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        //Writes the fixtures to the given directory, or the fixtures.dir one
+        generate(Path.of(args.length > 0 ? args[0] : System.getProperty(Fixtures.DIR_PROPERTY, "fixtures")));
+    }
+
+    public static void generate(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        Random random = new Random(SEED);
+        List<String> stations = Fixtures.stations().stream()
+                .map(Station::getCode)
+                .filter(code -> code.length() == 3)
+                .sorted()
+                .toList();
+        String hub = Fixtures.largeStation();
+
+        //Routes are a random walk over the stations, trips of a route alternate direction and run all day
+        List<GeneratedTrip> trips = new ArrayList<>();
+        StringBuilder routes = new StringBuilder("route_id,agency_id,route_short_name,route_long_name,route_type\n");
+        StringBuilder tripRows = new StringBuilder(
+                "route_id,service_id,trip_id,trip_short_name,direction_id,shape_id,trip_headsign\n");
+        StringBuilder stopTimes = new StringBuilder(
+                "trip_id,arrival_time,departure_time,stop_id,stop_sequence,pickup_type,drop_off_type\n");
+        String[] services = {"DAILY", "WEEKDAY", "WEEKEND"};
+        int number = 1;
+        for (int r = 0; r < ROUTES; r++) {
+            List<String> path = new ArrayList<>();
+            int length = 6 + random.nextInt(35);
+            while (path.size() < length) {
+                String station = stations.get(random.nextInt(stations.size()));
+                if (!path.contains(station) && !station.equals(hub)) {
+                    path.add(station);
+                }
+            }
+            if (r % 2 == 0) {
+                path.set(random.nextInt(path.size()), hub);
+            }
+            String routeId = String.valueOf(100 + r);
+            routes.append(routeId).append(",51,,Route ").append(r).append(",2\n");
+
+            int tripCount = 10 + random.nextInt(41);
+            for (int t = 0; t < tripCount; t++, number++) {
+                List<String> stops = new ArrayList<>(path);
+                if (t % 2 == 1) {
+                    Collections.reverse(stops);
+                }
+                GeneratedTrip trip = new GeneratedTrip(String.valueOf(50000 + number), number, stops);
+                tripRows.append(routeId).append(',').append(services[random.nextInt(services.length)]).append(',')
+                        .append(trip.id).append(',').append(number).append(',').append(t % 2).append(",,")
+                        .append(stops.get(stops.size() - 1)).append('\n');
+
+                int time = 4 * 3600 + random.nextInt(19 * 3600);
+                for (int s = 0; s < stops.size(); s++) {
+                    int arrival = time;
+                    int departure = s == 0 || s == stops.size() - 1 ? arrival : arrival + 60 * random.nextInt(6);
+                    trip.arrivals.add(arrival);
+                    trip.departures.add(departure);
+                    stopTimes.append(trip.id).append(',')
+                            .append(s == 0 ? "" : GTFSTime.format(arrival)).append(',')
+                            .append(s == stops.size() - 1 ? "" : GTFSTime.format(departure)).append(',')
+                            .append(stops.get(s)).append(',').append(s + 1).append(",0,0\n");
+                    time = departure + 60 * (5 + random.nextInt(56));
+                }
+                trips.add(trip);
+            }
+        }
+
+        String calendar = "service_id,monday,tuesday,wednesday,thursday,friday,saturday,sunday,start_date,end_date\n"
+                + "DAILY,1,1,1,1,1,1,1,20200101,20991231\n"
+                + "WEEKDAY,1,1,1,1,1,0,0,20200101,20991231\n"
+                + "WEEKEND,0,0,0,0,0,1,1,20200101,20991231\n";
+        String calendarDates = "service_id,date,exception_type\n"
+                + "DAILY,20991225,2\n"
+                + "WEEKEND,20991224,1\n";
+
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(dir.resolve(Fixtures.GTFS_ZIP)))) {
+            writeEntry(zip, "routes.txt", routes.toString());
+            writeEntry(zip, "trips.txt", tripRows.toString());
+            writeEntry(zip, "stop_times.txt", stopTimes.toString());
+            writeEntry(zip, "calendar.txt", calendar);
+            writeEntry(zip, "calendar_dates.txt", calendarDates);
+        }
+
+        //Realtime times are the schedule plus a delay that grows along the trip, up to the stop the train is at
+        LocalDate today = LocalDate.now(ZONE);
+        long now = System.currentTimeMillis() / 1000;
+        FeedMessage.Builder feed = FeedMessage.newBuilder().setHeader(FeedHeader.newBuilder()
+                .setGtfsRealtimeVersion("2.0").setTimestamp(now));
+        List<TrainApiModel> trains = new ArrayList<>();
+        for (GeneratedTrip trip : trips) {
+            if (random.nextInt(10) >= 4) {
+                continue;
+            }
+            feed.addEntity(tripUpdate(trip, today, random));
+            if (random.nextInt(10) == 0) {
+                feed.addEntity(tripUpdate(trip, today.minusDays(1), random));
+            }
+            if (trains.size() < MAP_TRAINS) {
+                trains.add(train(trip, today, random));
+            }
+        }
+        Files.write(dir.resolve(Fixtures.REALTIME), feed.build().toByteArray());
+        new ObjectMapper().writeValue(dir.resolve(Fixtures.MAP).toFile(), trains);
+        log.info("Generated fixtures with {} trips and {} trip updates in {}", trips.size(), feed.getEntityCount(),
+                dir);
+    }
+
+    private static FeedEntity tripUpdate(GeneratedTrip trip, LocalDate serviceDate, Random random) {
+        long dayStart = GTFSTime.serviceDayStart(serviceDate, ZONE);
+        String date = serviceDate.format(DateTimeFormatter.BASIC_ISO_DATE);
+        TripUpdate.Builder update = TripUpdate.newBuilder()
+                .setTrip(TripDescriptor.newBuilder().setTripId(date + "_AMTK_" + trip.id).setStartDate(date));
+        int delay = 0;
+        for (int s = 0; s < trip.stops.size(); s++) {
+            delay = Math.max(0, delay + 60 * (random.nextInt(5) - 1));
+            StopTimeUpdate.Builder stop = StopTimeUpdate.newBuilder()
+                    .setStopId(trip.stops.get(s))
+                    .setStopSequence(s + 1);
+            if (s > 0) {
+                stop.setArrival(StopTimeEvent.newBuilder()
+                        .setTime(dayStart + trip.arrivals.get(s) + delay).setDelay(delay));
+            }
+            if (s < trip.stops.size() - 1) {
+                stop.setDeparture(StopTimeEvent.newBuilder()
+                        .setTime(dayStart + trip.departures.get(s) + delay).setDelay(delay));
+            }
+            update.addStopTimeUpdate(stop);
+        }
+        return FeedEntity.newBuilder().setId(date + "_" + trip.id).setTripUpdate(update).build();
+    }
+
+    private static TrainApiModel train(GeneratedTrip trip, LocalDate serviceDate, Random random) {
+        //A train of the /map api, the stops before its position have actual times and the rest estimated ones
+        long dayStart = GTFSTime.serviceDayStart(serviceDate, ZONE);
+        TrainApiModel train = new TrainApiModel();
+        train.setTrain_id(trip.number + "-" + serviceDate.getDayOfMonth());
+        train.setNumber(trip.number);
+        train.setName("Route " + trip.number);
+        train.setRailroad("AMTK");
+        train.setDestination(trip.stops.get(trip.stops.size() - 1));
+        TrainLocation location = new TrainLocation();
+        location.setLatitude(25 + random.nextDouble() * 24);
+        location.setLongitude(-124 + random.nextDouble() * 55);
+        location.setSpeed(random.nextDouble() * 79);
+        train.setLocation(location);
+
+        int position = random.nextInt(trip.stops.size());
+        TrainStop[] stops = new TrainStop[trip.stops.size()];
+        for (int s = 0; s < stops.length; s++) {
+            TrainStop stop = new TrainStop();
+            stop.setCode(trip.stops.get(s));
+            stop.setSched_arrive(dayStart + trip.arrivals.get(s));
+            stop.setSched_depart(dayStart + trip.departures.get(s));
+            String type = s < position ? "ACTUAL" : "ESTIMATED";
+            stop.setArrive(arDep(random.nextInt(20) - 5, type));
+            if (s < stops.length - 1) {
+                stop.setDepart(arDep(random.nextInt(20) - 5, type));
+            }
+            stops[s] = stop;
+        }
+        train.setStops(stops);
+        return train;
+    }
+
+    private static TrainArDep arDep(int variance, String type) {
+        TrainArDep arDep = new TrainArDep();
+        arDep.setVariance(variance);
+        arDep.setType(type);
+        return arDep;
+    }
+
+    private static void writeEntry(ZipOutputStream zip, String name, String contents) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8));
+        writer.print(contents);
+        writer.flush();
+        zip.closeEntry();
+    }
+
+    private static class GeneratedTrip {
+        private final String id;
+        private final int number;
+        private final List<String> stops;
+        private final List<Integer> arrivals = new ArrayList<>();
+        private final List<Integer> departures = new ArrayList<>();
+
+        private GeneratedTrip(String id, int number, List<String> stops) {
+            this.id = id;
+            this.number = number;
+            this.stops = stops;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.kiron.amtrakTracker.benchmark;
+
+import com.kiron.amtrakTracker.model.gtfs.ScheduleStore;
+import com.kiron.amtrakTracker.model.gtfs.StationCatalog;
+import com.kiron.amtrakTracker.service.ScheduleService;
+
+public class FixtureScheduleService implements ScheduleService {
+    /*
+    Schedule and stations loaded once from the fixtures instead of the database
+     */
+    private final ScheduleStore store;
+    private final StationCatalog stationCatalog;
+
+    public FixtureScheduleService() {
+        this.store = Fixtures.schedule();
+        this.stationCatalog = new StationCatalog(1, Fixtures.stations());
+    }
+
+    @Override
+    public ScheduleStore getStore() {
+        return store;
+    }
+
+    @Override
+    public StationCatalog getStationCatalog() {
+        return stationCatalog;
+    }
+
+    @Override
+    public void rebuild() {
+        //The fixtures do not change while a benchmark runs
+    }
+}
@@ -0,0 +1,215 @@
+package com.kiron.amtrakTracker.benchmark;
+
+import com.google.transit.realtime.GtfsRealtime.FeedMessage;
+import com.kiron.amtrakTracker.model.gtfs.GTFSTime;
+import com.kiron.amtrakTracker.model.gtfs.Route;
+import com.kiron.amtrakTracker.model.gtfs.ScheduleStore;
+import com.kiron.amtrakTracker.model.gtfs.ServiceCalendar;
+import com.kiron.amtrakTracker.model.gtfs.ServiceCalendarDate;
+import com.kiron.amtrakTracker.model.gtfs.Station;
+import com.kiron.amtrakTracker.model.gtfs.Trip;
+import com.kiron.amtrakTracker.service.gtfs.GTFSAgency;
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+public final class Fixtures {
+    /*
+    Recorded inputs the benchmarks run against, read from the directory in the fixtures.dir system property. The
+    directory holds an Amtrak GTFS zip, a GTFS-RT TripUpdates snapshot and a dump of the /map train api, recordings
+    can be dropped in under the same names. Missing files are generated by FixtureGenerator so a fresh checkout can
+    run the benchmarks
+     */
+    public static final String DIR_PROPERTY = "fixtures.dir";
+    public static final String STATION_PROPERTY = "fixtures.station";
+
+    public static final String GTFS_ZIP = "amtrak-gtfs.zip";
+    public static final String REALTIME = "amtrak-rt.pb";
+    public static final String MAP = "map.json";
+
+    private Fixtures() {
+    }
+
+    public static synchronized Path dir() {
+        //Fixture directory, anything missing from it is generated first
+        Path dir = Path.of(System.getProperty(DIR_PROPERTY, "fixtures")).toAbsolutePath();
+        try {
+            if (!Files.exists(dir.resolve(GTFS_ZIP)) || !Files.exists(dir.resolve(REALTIME))
+                    || !Files.exists(dir.resolve(MAP))) {
+                FixtureGenerator.generate(dir);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return dir;
+    }
+
+    public static String largeStation() {
+        //Code of the station the single station benchmarks build, New York Penn has the most trains
+        return System.getProperty(STATION_PROPERTY, "NYP");
+    }
+
+    public static byte[] read(String name) {
+        try {
+            return Files.readAllBytes(dir().resolve(name));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static FeedMessage feed() {
+        try {
+            return FeedMessage.parseFrom(read(REALTIME));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static List<Station> stations() {
+        //Stations from the csv the backend imports them from, it is packaged with the backend's classes
+        List<Station> stations = new ArrayList<>();
+        try (InputStream inputStream = Fixtures.class.getResourceAsStream("/static/station.csv");
+             CSVReader csvReader = new CSVReader(new InputStreamReader(
+                     Objects.requireNonNull(inputStream, "static/station.csv is not on the classpath"),
+                     StandardCharsets.UTF_8))) {
+            csvReader.readNext();
+            String[] line;
+            while ((line = csvReader.readNext()) != null) {
+                Station s = new Station();
+                s.setId(line[0]);
+                s.setAdmin_area(line[1]);
+                s.setCode(line[2]);
+                s.setName(line[3]);
+                s.setTime_zone(line[4]);
+                s.setWebsite(line[5]);
+                stations.add(s);
+            }
+        } catch (IOException | CsvValidationException e) {
+            throw new IllegalStateException("Could not read stations", e);
+        }
+        return stations;
+    }
+
+    public static Station station(String code) {
+        return stations().stream()
+                .filter(station -> code.equals(station.getCode()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown station " + code));
+    }
+
+    public static ScheduleStore schedule() {
+        //Builds the schedule store from the GTFS zip the way ScheduleServiceImp builds it from the database
+        ScheduleStore.Builder builder = new ScheduleStore.Builder();
+        stations().forEach(builder::addStation);
+        try (ZipFile zipFile = new ZipFile(dir().resolve(GTFS_ZIP).toFile())) {
+            readCsv(zipFile, "routes.txt", row -> {
+                Route route = new Route();
+                route.setRoute_id(row.get("route_id"));
+                route.setRoute_name(row.get("route_long_name"));
+                builder.addRoute(route);
+            });
+            readCsv(zipFile, "trips.txt", row -> {
+                Trip trip = new Trip();
+                trip.setTrip_id(row.get("trip_id"));
+                trip.setRoute_id(row.get("route_id"));
+                trip.setNumber(Integer.parseInt(row.get("trip_short_name")));
+                trip.setDestination(row.get("trip_headsign"));
+                trip.setService_id(row.get("service_id"));
+                trip.setAgency(GTFSAgency.AMTRAK.name());
+                builder.addTrip(trip);
+            });
+            readCsv(zipFile, "calendar.txt", row -> {
+                ServiceCalendar calendar = new ServiceCalendar();
+                calendar.setAgency(GTFSAgency.AMTRAK.name());
+                calendar.setService_id(row.get("service_id"));
+                calendar.setMonday("1".equals(row.get("monday")));
+                calendar.setTuesday("1".equals(row.get("tuesday")));
+                calendar.setWednesday("1".equals(row.get("wednesday")));
+                calendar.setThursday("1".equals(row.get("thursday")));
+                calendar.setFriday("1".equals(row.get("friday")));
+                calendar.setSaturday("1".equals(row.get("saturday")));
+                calendar.setSunday("1".equals(row.get("sunday")));
+                calendar.setStart_date(LocalDate.parse(row.get("start_date"), DateTimeFormatter.BASIC_ISO_DATE));
+                calendar.setEnd_date(LocalDate.parse(row.get("end_date"), DateTimeFormatter.BASIC_ISO_DATE));
+                builder.addCalendar(calendar);
+            });
+            readCsv(zipFile, "calendar_dates.txt", row -> {
+                ServiceCalendarDate calendarDate = new ServiceCalendarDate();
+                calendarDate.setAgency(GTFSAgency.AMTRAK.name());
+                calendarDate.setService_id(row.get("service_id"));
+                calendarDate.setDate(LocalDate.parse(row.get("date"), DateTimeFormatter.BASIC_ISO_DATE));
+                calendarDate.setException_type(Integer.parseInt(row.get("exception_type")));
+                builder.addCalendarDate(calendarDate);
+            });
+            readCsv(zipFile, "stop_times.txt", row -> builder.addStopTime(row.get("trip_id"),
+                    Integer.parseInt(row.get("stop_sequence")), GTFSTime.parse(row.get("arrival_time")),
+                    GTFSTime.parse(row.get("departure_time")), row.get("stop_id")));
+        } catch (IOException | CsvValidationException e) {
+            throw new IllegalStateException("Could not read " + GTFS_ZIP, e);
+        }
+        return builder.build();
+    }
+
+    public static List<String> stopTimeColumn(String column) {
+        //One column of stop_times.txt as written in the zip
+        List<String> values = new ArrayList<>();
+        try (ZipFile zipFile = new ZipFile(dir().resolve(GTFS_ZIP).toFile())) {
+            readCsv(zipFile, "stop_times.txt", row -> values.add(row.get(column)));
+        } catch (IOException | CsvValidationException e) {
+            throw new IllegalStateException("Could not read " + GTFS_ZIP, e);
+        }
+        return values;
+    }
+
+    private static void readCsv(ZipFile zipFile, String name, Consumer<Map<String, String>> rows)
+            throws IOException, CsvValidationException {
+        //Reads a file of the zip by column name, files the zip does not have are skipped
+        ZipEntry entry = zipFile.getEntry(name);
+        if (entry == null) {
+            return;
+        }
+        try (CSVReader csvReader = new CSVReader(new InputStreamReader(zipFile.getInputStream(entry),
+                StandardCharsets.UTF_8))) {
+            String[] header = csvReader.readNext();
+            if (header == null) {
+                return;
+            }
+            for (int i = 0; i < header.length; i++) {
+                header[i] = header[i].replace("\uFEFF", "").trim();
+            }
+            String[] line;
+            while ((line = csvReader.readNext()) != null) {
+                Map<String, String> row = new HashMap<>();
+                for (int i = 0; i < header.length && i < line.length; i++) {
+                    row.put(header[i], line[i]);
+                }
+                rows.accept(row);
+            }
+        }
+    }
+
+    public static void inject(Object target, String field, Object value) {
+        //Sets a field the application gets autowired or from properties, the benchmarks run without a context
+        try {
+            Field f = target.getClass().getDeclaredField(field);
+            f.setAccessible(true);
+            f.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not set " + field + " of " + target.getClass(), e);
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.kiron.amtrakTracker.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kiron.amtrakTracker.benchmark.Fixtures;
+import com.kiron.amtrakTracker.load.Workload.Endpoint;
+import com.kiron.amtrakTracker.load.Workload.Request;
+import com.kiron.amtrakTracker.load.Workload.Train;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+@Slf4j
+public class LoadGenerator {
+    /*
+    Open model load generator for the read endpoints of a running backend. Requests arrive at a fixed average rate
+    with exponential gaps between them, whether or not earlier ones have been answered, and each one is sent on its
+    own virtual thread. Latency is measured from when a request was scheduled to be sent, so a backend that falls
+    behind shows up in the latencies instead of slowing the generator down, and every answer is recorded including
+    errors and timeouts. Latencies go to an HdrHistogram per endpoint, reported every interval and summed up as
+    p50/p90/p99/p99.9 and throughput once the warmup is over
+     */
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    private final Options options;
+    private final Workload workload;
+    private final HttpClient client;
+    private final Map<Endpoint, EndpointStats> stats = new EnumMap<>(Endpoint.class);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private HistogramLogWriter logWriter;
+    private long warmupEndNanos;
+
+    public LoadGenerator(Options options, Workload workload) {
+        this.options = options;
+        this.workload = workload;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(options.timeoutMs))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        for (Endpoint endpoint : options.mix.keySet()) {
+            stats.put(endpoint, new EndpointStats());
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        //Runs one load test against the target and logs its report, see Options for the arguments
+        Options options = Options.parse(args);
+        List<Train> trains = trains(options.target);
+        Workload workload = new Workload(options.mix, Fixtures.stations(), trains, options.zipf, options.seed);
+        log.info("Sending {} requests a second to {} for {}s after a {}s warmup, mix {}", options.rate,
+                options.target, options.durationS, options.warmupS, options.mix);
+        new LoadGenerator(options, workload).run();
+    }
+
+    public static List<Train> trains(String target) {
+        //Trains the backend has now, so train searches find something, numbers are used when it has none yet
+        List<Train> trains = new ArrayList<>();
+        try {
+            HttpResponse<byte[]> response = HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder(URI.create(target + "/api/train/getAll")).build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            for (JsonNode train : new ObjectMapper().readTree(response.body()).path("data")) {
+                String name = train.path("name").asText(null);
+                trains.add(new Train(train.path("number").asText(), name));
+            }
+        } catch (IOException e) {
+            log.warn("Could not get the trains of {}, searching train numbers instead: {}", target, e.toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (trains.isEmpty()) {
+            for (int number = 1; number <= 2000; number++) {
+                trains.add(new Train(String.valueOf(number), null));
+            }
+        }
+        return trains;
+    }
+
+    public void run() throws IOException, InterruptedException {
+        //Sends requests until the warmup and duration are over, then waits for the answers and logs the report
+        long startNanos = System.nanoTime();
+        warmupEndNanos = startNanos + TimeUnit.SECONDS.toNanos(options.warmupS);
+        long endNanos = warmupEndNanos + TimeUnit.SECONDS.toNanos(options.durationS);
+        if (options.hlog != null) {
+            logWriter = openLog(options.hlog);
+        }
+
+        Thread reporter = Thread.ofPlatform().name("load-reporter").daemon()
+                .start(() -> reportIntervals(startNanos, endNanos));
+        SplittableRandom arrivals = new SplittableRandom(options.seed);
+        double meanGapNanos = TimeUnit.SECONDS.toNanos(1) / options.rate;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            long next = startNanos;
+            while (next < endNanos) {
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                Request request = workload.next();
+                if (inFlight.incrementAndGet() > options.maxInFlight) {
+                    //The backend is so far behind that more requests would only measure the generator
+                    inFlight.decrementAndGet();
+                    dropped.incrementAndGet();
+                } else {
+                    long scheduledNanos = next;
+                    executor.execute(() -> send(request, scheduledNanos));
+                }
+                next += (long) (-Math.log(1 - arrivals.nextDouble()) * meanGapNanos);
+            }
+        }
+        reporter.interrupt();
+        reporter.join();
+
+        drain(true, "final");
+        report(TimeUnit.SECONDS.toNanos(options.durationS));
+        if (logWriter != null) {
+            logWriter.close();
+        }
+    }
+
+    private void send(Request request, long scheduledNanos) {
+        //Requests scheduled during the warmup are recorded apart, so the ones answered after it are not measured
+        EndpointStats endpointStats = stats.get(request.endpoint());
+        boolean warmup = scheduledNanos < warmupEndNanos;
+        boolean failed;
+        try {
+            HttpRequest httpRequest = HttpRequest.newBuilder(URI.create(options.target + request.path()))
+                    .timeout(Duration.ofMillis(options.timeoutMs))
+                    .GET()
+                    .build();
+            HttpResponse<Void> response = client.send(httpRequest, HttpResponse.BodyHandlers.discarding());
+            failed = response.statusCode() >= 400;
+        } catch (IOException e) {
+            failed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failed = true;
+        }
+
+        long micros = (System.nanoTime() - scheduledNanos) / 1000;
+        (warmup ? endpointStats.warmupRecorder : endpointStats.recorder).recordValue(Math.min(micros, HIGHEST_MICROS));
+        if (failed) {
+            (warmup ? endpointStats.warmupErrors : endpointStats.errors).incrementAndGet();
+        }
+        inFlight.decrementAndGet();
+    }
+
+    private void reportIntervals(long startNanos, long endNanos) {
+        //Logs every interval until the end of the run, the interval the warmup ends in is cut at its end so the
+        //measured histograms start with it
+        long intervalNanos = TimeUnit.SECONDS.toNanos(options.reportS);
+        long tick = startNanos;
+        boolean warmupDrained = options.warmupS == 0;
+        try {
+            while (true) {
+                tick += intervalNanos;
+                long until = !warmupDrained && warmupEndNanos <= tick ? warmupEndNanos : tick;
+                if (until >= endNanos) {
+                    return;
+                }
+                TimeUnit.NANOSECONDS.sleep(until - System.nanoTime());
+                if (until == warmupEndNanos && !warmupDrained) {
+                    drain(false, "warmup");
+                    warmupDrained = true;
+                    tick = warmupEndNanos;
+                } else {
+                    drain(until > warmupEndNanos, (until - startNanos) / TimeUnit.SECONDS.toNanos(1) + "s");
+                }
+            }
+        } catch (InterruptedException e) {
+            //The run is over
+        }
+    }
+
+    private synchronized void drain(boolean measured, String label) {
+        //Takes the interval histograms of every endpoint, of the measured requests or of the warmup ones, logs them
+        //and adds the measured ones to the totals
+        for (Map.Entry<Endpoint, EndpointStats> entry : stats.entrySet()) {
+            EndpointStats endpointStats = entry.getValue();
+            Histogram interval = (measured ? endpointStats.recorder : endpointStats.warmupRecorder)
+                    .getIntervalHistogram();
+            long errors = (measured ? endpointStats.errors : endpointStats.warmupErrors).getAndSet(0);
+            if (measured) {
+                endpointStats.total.add(interval);
+                endpointStats.totalErrors += errors;
+                if (logWriter != null) {
+                    interval.setTag(entry.getKey().getName());
+                    logWriter.outputIntervalHistogram(interval);
+                }
+            }
+            if (interval.getTotalCount() > 0) {
+                double seconds = Math.max(interval.getEndTimeStamp() - interval.getStartTimeStamp(), 1) / 1000.0;
+                log.info(String.format("%-7s %-15s %7d req %8.1f/s  p50 %8.2fms  p99 %8.2fms  max %8.2fms  %d errors",
+                        label, entry.getKey().getName(), interval.getTotalCount(), interval.getTotalCount() / seconds,
+                        millis(interval, 50), millis(interval, 99), interval.getMaxValue() / 1000.0, errors));
+            }
+        }
+    }
+
+    private void report(long measuredNanos) {
+        //Logs the totals of every endpoint and of all of them, with the throughput over the measured duration
+        double seconds = measuredNanos / 1e9;
+        Histogram all = new Histogram(HIGHEST_MICROS, 3);
+        long allErrors = 0;
+        log.info(String.format("%-15s %9s %7s %9s %9s %9s %9s %9s %9s", "endpoint", "requests", "errors", "req/s",
+                "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (Map.Entry<Endpoint, EndpointStats> entry : stats.entrySet()) {
+            EndpointStats endpointStats = entry.getValue();
+            all.add(endpointStats.total);
+            allErrors += endpointStats.totalErrors;
+            log.info(row(entry.getKey().getName(), endpointStats.total, endpointStats.totalErrors, seconds));
+        }
+        log.info(row("all", all, allErrors, seconds));
+        log.info("Target rate {}/s, {} requests dropped over {} in flight", options.rate, dropped.get(),
+                options.maxInFlight);
+    }
+
+    private static String row(String name, Histogram histogram, long errors, double seconds) {
+        return String.format("%-15s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f", name, histogram.getTotalCount(),
+                errors, histogram.getTotalCount() / seconds, millis(histogram, 50), millis(histogram, 90),
+                millis(histogram, 99), millis(histogram, 99.9), histogram.getMaxValue() / 1000.0);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static HistogramLogWriter openLog(String file) throws FileNotFoundException {
+        //HdrHistogram interval log of the measured intervals tagged by endpoint, for HistogramLogAnalyzer
+        HistogramLogWriter writer = new HistogramLogWriter(new PrintStream(file));
+        long now = System.currentTimeMillis();
+        writer.outputLogFormatVersion();
+        writer.outputStartTime(now);
+        writer.setBaseTime(now);
+        writer.outputLegend();
+        return writer;
+    }
+
+    private static class EndpointStats {
+        private final Recorder recorder = new Recorder(HIGHEST_MICROS, 3);
+        private final AtomicLong errors = new AtomicLong();
+        private final Recorder warmupRecorder = new Recorder(HIGHEST_MICROS, 3);
+        private final AtomicLong warmupErrors = new AtomicLong();
+        private final Histogram total = new Histogram(HIGHEST_MICROS, 3);
+        private long totalErrors;
+    }
+
+    public static class Options {
+        /*
+        Arguments are --name=value:
+            --target=http://localhost:8080   backend to load
+            --rate=100                       requests a second
+            --duration-s=60                  measured seconds, after the warmup
+            --warmup-s=10                    seconds sent but not measured, while the jit and caches warm up
+            --mix=station:50,station-search:20,trains:20,train-search:10
+                                             endpoint weights, endpoints left out are not requested
+            --zipf=1                         Zipf exponent of station and train popularity, 0 is uniform
+            --timeout-ms=5000                request timeout
+            --max-in-flight=10000            requests past this many unanswered ones are dropped and counted
+            --report-s=10                    seconds between interval reports
+            --hlog=<file>                    writes the measured interval histograms to an HdrHistogram log
+            --seed=25                        seed of the workload and arrivals
+         */
+        public String target = "http://localhost:8080";
+        public double rate = 100;
+        public long durationS = 60;
+        public long warmupS = 10;
+        public Map<Endpoint, Double> mix = parseMix("station:50,station-search:20,trains:20,train-search:10");
+        public double zipf = 1;
+        public long timeoutMs = 5000;
+        public int maxInFlight = 10_000;
+        public long reportS = 10;
+        public String hlog;
+        public long seed = 25;
+
+        public static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                int equals = arg.indexOf('=');
+                if (!arg.startsWith("--") || equals < 0) {
+                    throw new IllegalArgumentException("Arguments are --name=value, got " + arg);
+                }
+                values.put(arg.substring(2, equals), arg.substring(equals + 1));
+            }
+            Options options = new Options();
+            String target = values.remove("target");
+            if (target != null) {
+                options.target = target.endsWith("/") ? target.substring(0, target.length() - 1) : target;
+            }
+            options.rate = Double.parseDouble(values.getOrDefault("rate", String.valueOf(options.rate)));
+            options.durationS = Long.parseLong(values.getOrDefault("duration-s", String.valueOf(options.durationS)));
+            options.warmupS = Long.parseLong(values.getOrDefault("warmup-s", String.valueOf(options.warmupS)));
+            if (values.containsKey("mix")) {
+                options.mix = parseMix(values.get("mix"));
+            }
+            options.zipf = Double.parseDouble(values.getOrDefault("zipf", String.valueOf(options.zipf)));
+            options.timeoutMs = Long.parseLong(values.getOrDefault("timeout-ms", String.valueOf(options.timeoutMs)));
+            options.maxInFlight = Integer.parseInt(values.getOrDefault("max-in-flight",
+                    String.valueOf(options.maxInFlight)));
+            options.reportS = Long.parseLong(values.getOrDefault("report-s", String.valueOf(options.reportS)));
+            options.hlog = values.remove("hlog");
+            options.seed = Long.parseLong(values.getOrDefault("seed", String.valueOf(options.seed)));
+            values.keySet().removeAll(List.of("rate", "duration-s", "warmup-s", "mix", "zipf", "timeout-ms",
+                    "max-in-flight", "report-s", "seed"));
+            if (!values.isEmpty()) {
+                throw new IllegalArgumentException("Unknown arguments " + values.keySet());
+            }
+            if (options.rate <= 0 || options.durationS <= 0 || options.warmupS < 0 || options.timeoutMs <= 0
+                    || options.maxInFlight <= 0 || options.reportS <= 0) {
+                throw new IllegalArgumentException("Rate, duration, timeout, max in flight and report interval must "
+                        + "be positive and the warmup not negative");
+            }
+            return options;
+        }
+
+        private static Map<Endpoint, Double> parseMix(String mix) {
+            //endpoint:weight pairs, kept in endpoint order so a seed always sends the same requests
+            Map<Endpoint, Double> weights = new EnumMap<>(Endpoint.class);
+            for (String pair : mix.split(",")) {
+                String[] parts = pair.trim().split(":");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("The mix is endpoint:weight pairs, got " + pair);
+                }
+                double weight = Double.parseDouble(parts[1]);
+                if (weight < 0) {
+                    throw new IllegalArgumentException("Mix weights cannot be negative, got " + pair);
+                }
+                if (weight > 0) {
+                    weights.put(Endpoint.of(parts[0]), weight);
+                }
+            }
+            if (weights.isEmpty()) {
+                throw new IllegalArgumentException("The mix needs an endpoint with a positive weight");
+            }
+            return weights;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.kiron.amtrakTracker.load;
+
+import com.kiron.amtrakTracker.model.gtfs.Station;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+public class Workload {
+    /*
+    Request mix of the load generator. Each request picks an endpoint by its weight in the mix, then a station or a
+    train by popularity: stations and trains are ranked in a random order fixed by the seed and drawn from a Zipf
+    distribution over the ranks, so a few stations and trains get most of the requests like they do in production.
+    Searches are prefixes of the names users type, from three letters up, or a station code or train number
+     */
+    public enum Endpoint {
+        STATION("station"),
+        STATION_SEARCH("station-search"),
+        TRAINS("trains"),
+        TRAIN_SEARCH("train-search");
+
+        private final String name;
+
+        Endpoint(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public static Endpoint of(String name) {
+            for (Endpoint endpoint : values()) {
+                if (endpoint.name.equals(name)) {
+                    return endpoint;
+                }
+            }
+            throw new IllegalArgumentException("Unknown endpoint " + name + ", endpoints are "
+                    + Arrays.stream(values()).map(Endpoint::getName).toList());
+        }
+    }
+
+    public record Request(Endpoint endpoint, String path) {
+    }
+
+    public record Train(String number, String name) {
+    }
+
+    private final Endpoint[] endpoints;
+    private final double[] cumulativeWeights;
+    private final List<Station> stations;
+    private final List<Train> trains;
+    private final Zipf stationPopularity;
+    private final Zipf trainPopularity;
+    private final SplittableRandom random;
+
+    public Workload(Map<Endpoint, Double> mix, List<Station> stations, List<Train> trains, double exponent,
+                    long seed) {
+        if (stations.isEmpty() || trains.isEmpty()) {
+            throw new IllegalArgumentException("The workload needs stations and trains to request");
+        }
+        this.random = new SplittableRandom(seed);
+        this.endpoints = mix.keySet().toArray(Endpoint[]::new);
+        this.cumulativeWeights = new double[endpoints.length];
+        double sum = 0;
+        for (int i = 0; i < endpoints.length; i++) {
+            sum += mix.get(endpoints[i]);
+            cumulativeWeights[i] = sum;
+        }
+        if (sum <= 0) {
+            throw new IllegalArgumentException("The request mix needs a positive weight");
+        }
+        for (int i = 0; i < endpoints.length; i++) {
+            cumulativeWeights[i] /= sum;
+        }
+
+        Random shuffle = new Random(seed);
+        this.stations = new ArrayList<>(stations);
+        Collections.shuffle(this.stations, shuffle);
+        this.trains = new ArrayList<>(trains);
+        Collections.shuffle(this.trains, shuffle);
+        this.stationPopularity = new Zipf(this.stations.size(), exponent);
+        this.trainPopularity = new Zipf(this.trains.size(), exponent);
+    }
+
+    public Request next() {
+        //Next request of the mix, only called from the thread scheduling requests
+        double draw = random.nextDouble();
+        Endpoint endpoint = endpoints[endpoints.length - 1];
+        for (int i = 0; i < endpoints.length; i++) {
+            if (draw < cumulativeWeights[i]) {
+                endpoint = endpoints[i];
+                break;
+            }
+        }
+
+        return switch (endpoint) {
+            case STATION -> new Request(endpoint, "/api/station/get/" + encode(nextStation().getCode()));
+            case STATION_SEARCH -> {
+                Station station = nextStation();
+                String query = station.getName() == null || random.nextInt(4) == 0
+                        ? station.getCode() : prefix(station.getName());
+                yield new Request(endpoint, "/api/station/search/" + encode(query));
+            }
+            case TRAINS -> new Request(endpoint, "/api/train/getAll");
+            case TRAIN_SEARCH -> {
+                Train train = trains.get(trainPopularity.next(random));
+                String query = train.name() == null || random.nextBoolean() ? train.number() : prefix(train.name());
+                yield new Request(endpoint, "/api/train/search/" + encode(query));
+            }
+        };
+    }
+
+    private Station nextStation() {
+        return stations.get(stationPopularity.next(random));
+    }
+
+    private String prefix(String name) {
+        //What a user has typed of a name, at least three letters of it
+        if (name.length() <= 3) {
+            return name;
+        }
+        return name.substring(0, 3 + random.nextInt(name.length() - 2));
+    }
+
+    private static String encode(String segment) {
+        return URLEncoder.encode(segment, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+}
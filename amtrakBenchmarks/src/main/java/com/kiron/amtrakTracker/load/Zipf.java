@@ -0,0 +1,33 @@
+package com.kiron.amtrakTracker.load;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+public class Zipf {
+    /*
+    Zipf distribution over the ranks 0 to n - 1, rank k is drawn with a probability proportional to 1 / (k + 1)^s.
+    An exponent of 0 is uniform, around 1 a few ranks get most draws the way a few large stations get most lookups
+     */
+    private final double[] cumulative;
+
+    public Zipf(int n, double exponent) {
+        if (n <= 0 || exponent < 0) {
+            throw new IllegalArgumentException("Zipf needs at least one rank and an exponent of 0 or more");
+        }
+        cumulative = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cumulative[k] /= sum;
+        }
+    }
+
+    public int next(SplittableRandom random) {
+        //Inverts the cumulative distribution with a binary search
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+}
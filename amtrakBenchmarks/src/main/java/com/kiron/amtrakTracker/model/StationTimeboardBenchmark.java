@@ -0,0 +1,78 @@
+package com.kiron.amtrakTracker.model;
+
+import com.kiron.amtrakTracker.benchmark.FixtureFeedSnapshotService;
+import com.kiron.amtrakTracker.benchmark.FixtureScheduleService;
+import com.kiron.amtrakTracker.benchmark.Fixtures;
+import com.kiron.amtrakTracker.service.TimeboardServiceImp;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StationTimeboardBenchmark {
+    /*
+    Sorting and paging the timeboard of the large station. Rows are built once from the fixtures, the sort runs on
+    a fresh shuffle every invocation since sorting sorted rows is not what a rebuild does
+     */
+    private static final int PAGE = 50;
+
+    private StationTimeboard sorted;
+    private long middle;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        TimeboardServiceImp timeboardService = new TimeboardServiceImp();
+        Fixtures.inject(timeboardService, "scheduleService", new FixtureScheduleService());
+        Fixtures.inject(timeboardService, "feedSnapshotService", new FixtureFeedSnapshotService());
+        timeboardService.rebuildTimeboards();
+        sorted = timeboardService.getTimeboard(Fixtures.largeStation());
+        middle = sorted.getTimeboard().get(sorted.getTimeboard().size() / 2).getSortTime();
+    }
+
+    @State(Scope.Thread)
+    public static class Shuffled {
+        //Only the sort benchmark takes this state, so the page benchmarks do not pay for a setup every invocation
+        private final Random random = new Random(22);
+        private List<TimeboardRow> rows;
+        private StationTimeboard timeboard;
+
+        @Setup(Level.Invocation)
+        public void shuffle(StationTimeboardBenchmark benchmark) {
+            StationTimeboard sorted = benchmark.sorted;
+            if (rows == null) {
+                rows = new ArrayList<>(sorted.getTimeboard());
+            }
+            timeboard = new StationTimeboard(sorted.getCode(), sorted.getName(), sorted.getWebsite(),
+                    sorted.getAdmin_area());
+            Collections.shuffle(rows, random);
+            rows.forEach(timeboard::addRow);
+        }
+    }
+
+    @Benchmark
+    public StationTimeboard sortTimeboard(Shuffled shuffled) {
+        shuffled.timeboard.sortTimeboard();
+        return shuffled.timeboard;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public StationTimeboard firstPage() {
+        return sorted.page(null, null, null, PAGE);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public StationTimeboard windowPage() {
+        return sorted.page(middle, middle + 3 * 3600, null, PAGE);
+    }
+}
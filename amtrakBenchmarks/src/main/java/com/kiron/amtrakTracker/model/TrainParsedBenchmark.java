@@ -0,0 +1,43 @@
+package com.kiron.amtrakTracker.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kiron.amtrakTracker.benchmark.Fixtures;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrainParsedBenchmark {
+    /*
+    The train api update on the fixture /map dump, reading the json into TrainApiModels and turning each of them into
+    a TrainParsed
+     */
+    private final ObjectMapper mapper = new ObjectMapper();
+    private byte[] json;
+    private TrainApiModel[] trains;
+
+    @Setup
+    public void setup() throws IOException {
+        json = Fixtures.read(Fixtures.MAP);
+        trains = mapper.readValue(json, TrainApiModel[].class);
+    }
+
+    @Benchmark
+    public TrainApiModel[] readMap() throws IOException {
+        return mapper.readValue(json, TrainApiModel[].class);
+    }
+
+    @Benchmark
+    public void parseTrains(Blackhole blackhole) {
+        for (TrainApiModel train : trains) {
+            blackhole.consume(new TrainParsed(train));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.kiron.amtrakTracker.model.gtfs;
+
+import com.kiron.amtrakTracker.benchmark.Fixtures;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GTFSTimeBenchmark {
+    /*
+    Converting every departure time of the fixture stop_times.txt, the import parses each of them and formatting is
+    the way back
+     */
+    private String[] times;
+    private int[] seconds;
+
+    @Setup
+    public void setup() {
+        List<String> departures = Fixtures.stopTimeColumn("departure_time");
+        times = departures.toArray(new String[0]);
+        seconds = new int[times.length];
+        for (int i = 0; i < times.length; i++) {
+            seconds[i] = GTFSTime.parse(times[i]);
+        }
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        for (String time : times) {
+            blackhole.consume(GTFSTime.parse(time));
+        }
+    }
+
+    @Benchmark
+    public void format(Blackhole blackhole) {
+        for (int time : seconds) {
+            blackhole.consume(GTFSTime.format(time));
+        }
+    }
+}
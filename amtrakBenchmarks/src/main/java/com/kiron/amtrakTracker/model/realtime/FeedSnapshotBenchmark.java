@@ -0,0 +1,32 @@
+package com.kiron.amtrakTracker.model.realtime;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.transit.realtime.GtfsRealtime.FeedMessage;
+import com.kiron.amtrakTracker.benchmark.Fixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FeedSnapshotBenchmark {
+    /*
+    Ingesting the fixture GTFS-RT snapshot, parsing the protobuf and indexing its TripUpdates by trip id
+     */
+    private byte[] feed;
+
+    @Setup
+    public void setup() {
+        feed = Fixtures.read(Fixtures.REALTIME);
+    }
+
+    @Benchmark
+    public FeedSnapshot ingest() throws InvalidProtocolBufferException {
+        return new FeedSnapshot(RealtimeAgency.AMTRAK, 1, Instant.EPOCH, FeedMessage.parseFrom(feed));
+    }
+}
@@ -0,0 +1,106 @@
+package com.kiron.amtrakTracker.replay;
+
+import com.kiron.amtrakTracker.benchmark.Fixtures;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+public class Recordings {
+    /*
+    Payloads recorded by the backend's PayloadRecorder, by feed and then by the epoch millisecond they were fetched
+    at. Feeds are map, gtfs-rt/<agency> and gtfs/<agency>, the directories the recorder writes to
+     */
+    private final Map<String, NavigableMap<Long, Path>> feeds;
+    private final long first;
+    private final long last;
+
+    private Recordings(Map<String, NavigableMap<Long, Path>> feeds) {
+        this.feeds = feeds;
+        this.first = feeds.values().stream().mapToLong(NavigableMap::firstKey).min().orElse(0);
+        this.last = feeds.values().stream().mapToLong(NavigableMap::lastKey).max().orElse(0);
+    }
+
+    public static Recordings load(Path dir) throws IOException {
+        //Reads every recording under dir, files not named <epoch millis>.<extension> are skipped. Of the payloads
+        //recorded in the same millisecond, named <epoch millis>.<n>.<extension>, the last one is replayed
+        Map<String, NavigableMap<Long, Path>> feeds = new TreeMap<>();
+        if (!Files.isDirectory(dir)) {
+            throw new IOException("No recordings directory " + dir);
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                String name = file.getFileName().toString();
+                int dot = name.indexOf('.');
+                if (dot <= 0 || name.endsWith(".tmp")) {
+                    continue;
+                }
+                try {
+                    long timestamp = Long.parseLong(name.substring(0, dot));
+                    String feed = dir.relativize(file.getParent()).toString().replace('\\', '/');
+                    feeds.computeIfAbsent(feed, k -> new TreeMap<>()).merge(timestamp, file,
+                            (recorded, other) -> sequence(other) > sequence(recorded) ? other : recorded);
+                } catch (NumberFormatException e) {
+                    //Not a recording
+                }
+            }
+        }
+        if (feeds.isEmpty()) {
+            throw new IOException("No recordings in " + dir);
+        }
+        return new Recordings(feeds);
+    }
+
+    private static int sequence(Path file) {
+        //n of a file named <epoch millis>.<n>.<extension>, 0 for the first payload of a millisecond
+        String[] parts = file.getFileName().toString().split("\\.");
+        if (parts.length < 3) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(parts[1]);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public static Recordings fixtures() {
+        //The benchmark fixtures as one recording of each Amtrak feed, for replays without recordings
+        Path dir = Fixtures.dir();
+        Map<String, NavigableMap<Long, Path>> feeds = new TreeMap<>();
+        feeds.put("map", new TreeMap<>(Map.of(0L, dir.resolve(Fixtures.MAP))));
+        feeds.put("gtfs-rt/amtrak", new TreeMap<>(Map.of(0L, dir.resolve(Fixtures.REALTIME))));
+        feeds.put("gtfs/amtrak", new TreeMap<>(Map.of(0L, dir.resolve(Fixtures.GTFS_ZIP))));
+        return new Recordings(feeds);
+    }
+
+    public Set<String> getFeeds() {
+        return feeds.keySet();
+    }
+
+    public int size(String feed) {
+        NavigableMap<Long, Path> recordings = feeds.get(feed);
+        return recordings == null ? 0 : recordings.size();
+    }
+
+    public long getFirst() {
+        return first;
+    }
+
+    public long getLast() {
+        return last;
+    }
+
+    public Map.Entry<Long, Path> at(String feed, long timestamp) {
+        //The recording of a feed that was current at timestamp, its first one before it starts and null for feeds
+        //that were not recorded
+        NavigableMap<Long, Path> recordings = feeds.get(feed);
+        if (recordings == null) {
+            return null;
+        }
+        Map.Entry<Long, Path> recording = recordings.floorEntry(timestamp);
+        return recording != null ? recording : recordings.firstEntry();
+    }
+}
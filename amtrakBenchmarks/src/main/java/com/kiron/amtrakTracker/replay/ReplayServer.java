@@ -0,0 +1,204 @@
+package com.kiron.amtrakTracker.replay;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+public class ReplayServer implements AutoCloseable {
+    /*
+    Local stand-in for the upstream apis, serving recorded payloads on the paths the backend fetches:
+        /map                  the /map train api
+        /gtfs/<agency>        GTFS-RT feeds, like asm-backend.transitdocs.com/gtfs/<agency>
+        /static/<agency>.zip  static GTFS zips
+    Point the backend at it with upstream.map-url=http://localhost:<port>/map,
+    upstream.gtfs-rt-url=http://localhost:<port>/gtfs/ and upstream.gtfs-url=http://localhost:<port>/static/.
+
+    The recordings are replayed on their own clock, starting at the first recording when the server starts and
+    running speed times faster than real time, every request gets the recording of its feed that was current then.
+    Past the last recording the replay starts over when looping, otherwise the last recordings stay. Every response
+    can be delayed by a latency plus a random jitter, and a share of them answered with 503 instead
+     */
+    private final Recordings recordings;
+    private final Options options;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final long startNanos;
+
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public ReplayServer(Recordings recordings, Options options) throws IOException {
+        this.recordings = recordings;
+        this.options = options;
+        this.server = HttpServer.create(new InetSocketAddress(options.port), 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        this.startNanos = System.nanoTime();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        //Runs the server until it is killed, see Options for the arguments
+        Options options = Options.parse(args);
+        Recordings recordings = options.dir == null ? Recordings.fixtures() : Recordings.load(Path.of(options.dir));
+        ReplayServer server = new ReplayServer(recordings, options);
+        for (String feed : recordings.getFeeds()) {
+            log.info("Replaying {} recordings of {}", recordings.size(feed), feed);
+        }
+        log.info("Replay server listening on port {} at {}x speed", server.getPort(), options.speed);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        Thread.currentThread().join();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public long getServed() {
+        return served.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long replayTime() {
+        //Timestamp of the recordings the replay is at now
+        long elapsed = (long) ((System.nanoTime() - startNanos) / 1_000_000 * options.speed);
+        long span = recordings.getLast() - recordings.getFirst();
+        if (options.loop && span > 0) {
+            elapsed %= span + 1;
+        }
+        return recordings.getFirst() + elapsed;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String feed = feedOf(exchange.getRequestURI().getPath());
+            Map.Entry<Long, Path> recording = feed == null ? null : recordings.at(feed, replayTime());
+
+            long delay = options.latencyMs + (options.jitterMs > 0
+                    ? ThreadLocalRandom.current().nextLong(options.jitterMs + 1) : 0);
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+
+            if (options.errorRate > 0 && ThreadLocalRandom.current().nextDouble() < options.errorRate) {
+                failed.incrementAndGet();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            if (recording == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            //The importer sends the ETag of the last zip it imported, an unchanged recording is not sent again
+            String etag = "\"" + recording.getValue().getFileName() + "\"";
+            exchange.getResponseHeaders().set("ETag", etag);
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            byte[] body = Files.readAllBytes(recording.getValue());
+            exchange.getResponseHeaders().set("Content-Type", contentType(recording.getValue()));
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+            served.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String feedOf(String path) {
+        //Recorded feed a request path is for
+        if (path.equals("/map")) {
+            return "map";
+        } else if (path.startsWith("/gtfs/") && path.length() > "/gtfs/".length()) {
+            return "gtfs-rt/" + path.substring("/gtfs/".length());
+        } else if (path.startsWith("/static/") && path.endsWith(".zip")) {
+            return "gtfs/" + path.substring("/static/".length(), path.length() - ".zip".length());
+        }
+        return null;
+    }
+
+    private static String contentType(Path file) {
+        String name = file.getFileName().toString();
+        if (name.endsWith(".json")) {
+            return "application/json";
+        } else if (name.endsWith(".zip")) {
+            return "application/zip";
+        }
+        return "application/x-protobuf";
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public static class Options {
+        /*
+        Arguments are --name=value:
+            --dir=<recordings>   recordings directory, the benchmark fixtures are replayed when it is not given
+            --port=8089          0 picks a free port
+            --speed=1            replay speed, 60 replays an hour of recordings in a minute
+            --loop=true          start over after the last recording
+            --latency-ms=0       added to every response
+            --jitter-ms=0        random extra latency of up to this
+            --error-rate=0       share of requests answered with 503, from 0 to 1
+         */
+        public String dir;
+        public int port = 8089;
+        public double speed = 1;
+        public boolean loop = true;
+        public long latencyMs;
+        public long jitterMs;
+        public double errorRate;
+
+        public static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                int equals = arg.indexOf('=');
+                if (!arg.startsWith("--") || equals < 0) {
+                    throw new IllegalArgumentException("Arguments are --name=value, got " + arg);
+                }
+                values.put(arg.substring(2, equals), arg.substring(equals + 1));
+            }
+            Options options = new Options();
+            options.dir = values.remove("dir");
+            options.port = Integer.parseInt(values.getOrDefault("port", String.valueOf(options.port)));
+            options.speed = Double.parseDouble(values.getOrDefault("speed", String.valueOf(options.speed)));
+            options.loop = Boolean.parseBoolean(values.getOrDefault("loop", String.valueOf(options.loop)));
+            options.latencyMs = Long.parseLong(values.getOrDefault("latency-ms", "0"));
+            options.jitterMs = Long.parseLong(values.getOrDefault("jitter-ms", "0"));
+            options.errorRate = Double.parseDouble(values.getOrDefault("error-rate", "0"));
+            values.keySet().removeAll(List.of("port", "speed", "loop", "latency-ms", "jitter-ms",
+                    "error-rate"));
+            if (!values.isEmpty()) {
+                throw new IllegalArgumentException("Unknown arguments " + values.keySet());
+            }
+            if (options.speed <= 0 || options.errorRate < 0 || options.errorRate > 1) {
+                throw new IllegalArgumentException("Speed must be positive and the error rate from 0 to 1");
+            }
+            return options;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.kiron.amtrakTracker.service;
+
+import com.kiron.amtrakTracker.benchmark.FixtureFeedSnapshotService;
+import com.kiron.amtrakTracker.benchmark.FixtureScheduleService;
+import com.kiron.amtrakTracker.benchmark.Fixtures;
+import com.kiron.amtrakTracker.model.StationTimeboard;
+import com.kiron.amtrakTracker.model.gtfs.ScheduleStore;
+import com.kiron.amtrakTracker.model.gtfs.Station;
+import com.kiron.amtrakTracker.model.realtime.RealtimeAgency;
+import com.kiron.amtrakTracker.model.realtime.TripUpdateIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimeboardBenchmark {
+    /*
+    Building station timeboards from the fixture schedule and GTFS-RT snapshot: one large station the way a feed
+    update rebuilds it (every buildRow of the station and the sort), every station the way a schedule reload does,
+    and reading a materialized timeboard the way getTrainsAtStation serves it
+     */
+    private TimeboardServiceImp timeboardService;
+    private StationServiceImp stationService;
+    private Station station;
+    private TripUpdateIndex tripUpdates;
+    private ScheduleStore schedule;
+
+    @Setup
+    public void setup() {
+        FixtureScheduleService scheduleService = new FixtureScheduleService();
+        FixtureFeedSnapshotService feedSnapshotService = new FixtureFeedSnapshotService();
+        timeboardService = new TimeboardServiceImp();
+        Fixtures.inject(timeboardService, "scheduleService", scheduleService);
+        Fixtures.inject(timeboardService, "feedSnapshotService", feedSnapshotService);
+        timeboardService.rebuildTimeboards();
+        stationService = new StationServiceImp();
+        Fixtures.inject(stationService, "timeboardService", timeboardService);
+
+        station = Fixtures.station(Fixtures.largeStation());
+        tripUpdates = feedSnapshotService.getSnapshot(RealtimeAgency.forStationCode(station.getCode()))
+                .getTripUpdates();
+        schedule = scheduleService.getStore();
+    }
+
+    @Benchmark
+    public StationTimeboard buildLargeStation() {
+        return timeboardService.buildTimeboard(station, tripUpdates, schedule);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public StationTimeboard rebuildAllStations() {
+        timeboardService.rebuildTimeboards();
+        return timeboardService.getTimeboard(station.getCode());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public StationTimeboard getTrainsAtStation() {
+        return stationService.getTrainsAtStation(station.getCode());
+    }
+}
@@ -0,0 +1,102 @@
+package com.kiron.amtrakTracker.service.gtfs;
+
+import com.kiron.amtrakTracker.benchmark.Fixtures;
+import com.kiron.amtrakTracker.model.gtfs.Route;
+import com.kiron.amtrakTracker.model.gtfs.ServiceCalendar;
+import com.kiron.amtrakTracker.model.gtfs.ServiceCalendarDate;
+import com.kiron.amtrakTracker.model.gtfs.Trip;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GTFSImportBenchmark {
+    /*
+    Csv import throughput of the files of the fixture GTFS zip, through the importer's own parsing of one entry: the
+    hash that skips unchanged files, the csv reading and the rows written in batches. Batches go to a loader that
+    only counts them instead of copying them into Postgres, the rows counter is the rows per second
+     */
+    @Param({"stop_times.txt", "trips.txt"})
+    public String file;
+
+    private GTFSImporter importer;
+    private ZipFile zipFile;
+    private ZipEntry zipEntry;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Rows {
+        public long rows;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rows = 0;
+        }
+    }
+
+    private static class CountingCopyLoader extends GTFSCopyLoader {
+        private long rows;
+
+        @Override
+        public void copyStopTimes(GTFSAgency agency, List<GTFSStopTime> stopTimes) {
+            rows += stopTimes.size();
+        }
+
+        @Override
+        public void copyTrips(GTFSAgency agency, List<Trip> trips) {
+            rows += trips.size();
+        }
+
+        @Override
+        public void copyRoutes(GTFSAgency agency, List<Route> routes) {
+            rows += routes.size();
+        }
+
+        @Override
+        public void copyCalendars(GTFSAgency agency, List<ServiceCalendar> calendars) {
+            rows += calendars.size();
+        }
+
+        @Override
+        public void copyCalendarDates(GTFSAgency agency, List<ServiceCalendarDate> calendarDates) {
+            rows += calendarDates.size();
+        }
+    }
+
+    private final CountingCopyLoader copyLoader = new CountingCopyLoader();
+
+    @Setup
+    public void setup() throws IOException {
+        importer = new GTFSImporter();
+        Fixtures.inject(importer, "copyLoader", copyLoader);
+        Fixtures.inject(importer, "batchSize", 5000);
+        Fixtures.inject(importer, "meterRegistry", new SimpleMeterRegistry());
+        zipFile = new ZipFile(Fixtures.dir().resolve(Fixtures.GTFS_ZIP).toFile());
+        zipEntry = zipFile.getEntry(file);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        zipFile.close();
+    }
+
+    @Benchmark
+    public void importFile(Rows rows) {
+        GTFSImporter.AgencyImport agencyImport = importer.new AgencyImport(GTFSAgency.AMTRAK, new HashMap<>());
+        long before = copyLoader.rows;
+        importer.parseEntry(agencyImport, zipFile, zipEntry);
+        agencyImport.close(true);
+        rows.rows += copyLoader.rows - before;
+    }
+}
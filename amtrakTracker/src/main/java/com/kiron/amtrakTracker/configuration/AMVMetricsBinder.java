@@ -0,0 +1,63 @@
+package com.kiron.amtrakTracker.configuration;
+
+import com.kiron.amtrakTracker.model.TrainSnapshot;
+import com.kiron.amtrakTracker.model.realtime.FeedSnapshot;
+import com.kiron.amtrakTracker.model.realtime.RealtimeAgency;
+import com.kiron.amtrakTracker.service.FeedSnapshotService;
+import com.kiron.amtrakTracker.service.TrainRegistry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+@Component
+public class AMVMetricsBinder implements MeterBinder {
+    /*
+    Gauges of the live data the app serves, read from the current snapshots every time metrics are scraped. Ages are
+    NaN until the first snapshot arrives, so a missing feed does not look like a fresh one
+     */
+
+    @Autowired
+    private TrainRegistry trainRegistry;
+
+    @Autowired
+    private FeedSnapshotService feedSnapshotService;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        //Registers the gauges, Spring Boot binds every MeterBinder bean to the registry on startup
+        Gauge.builder("trains.live", trainRegistry, r -> r.getSnapshot().getTrains().size())
+                .description("Trains in the current train snapshot")
+                .register(registry);
+        Gauge.builder("trains.snapshot.age", trainRegistry, r -> ageSeconds(r.getSnapshot()))
+                .description("Seconds since the current train snapshot was published")
+                .baseUnit("seconds")
+                .register(registry);
+
+        for (RealtimeAgency agency : RealtimeAgency.values()) {
+            Gauge.builder("gtfs.rt.snapshot.age", feedSnapshotService, s -> ageSeconds(s.getSnapshot(agency)))
+                    .description("Seconds since the header timestamp of the current GTFS-RT snapshot")
+                    .baseUnit("seconds")
+                    .tag("feed", agency.getPath())
+                    .register(registry);
+        }
+    }
+
+    private static double ageSeconds(TrainSnapshot snapshot) {
+        if (snapshot.getVersion() == 0) {
+            return Double.NaN;
+        }
+        return (Instant.now().toEpochMilli() - snapshot.getCreatedAt().toEpochMilli()) / 1000.0;
+    }
+
+    private static double ageSeconds(FeedSnapshot snapshot) {
+        //The feed's own timestamp, so a feed that stopped updating upstream ages even though it is fetched
+        if (snapshot.getFeedTimestamp() == 0) {
+            return Double.NaN;
+        }
+        return Instant.now().getEpochSecond() - snapshot.getFeedTimestamp();
+    }
+}
@@ -0,0 +1,36 @@
+package com.kiron.amtrakTracker.controller;
+
+import com.kiron.amtrakTracker.model.search.SearchResult;
+import com.kiron.amtrakTracker.service.SearchService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/search")
+public class SearchController {
+
+    private static final int MAX_LIMIT = 50;
+
+    @Autowired
+    private SearchService searchService;
+
+    @GetMapping("/{query}")
+    public ResponseEntity<?> typeahead(@PathVariable String query,
+                                       @RequestParam(defaultValue = "10") int limit) {
+        //Suggests stations and trains matching query, best matches first
+
+        Map<String, Object> searchResponse = new HashMap<String, Object>();
+
+        List<SearchResult> results = searchService.typeahead(query, Math.max(1, Math.min(limit, MAX_LIMIT)));
+
+        searchResponse.put("status", 200);
+        searchResponse.put("data", results);
+        return new ResponseEntity<>(searchResponse, HttpStatus.OK);
+    }
+}
@@ -1,7 +1,12 @@
 package com.kiron.amtrakTracker.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.kiron.amtrakTracker.model.StationTimeboard;
 import com.kiron.amtrakTracker.model.gtfs.Station;
+import com.kiron.amtrakTracker.model.gtfs.StationCatalog;
+import com.kiron.amtrakTracker.service.ResponseCache;
+import com.kiron.amtrakTracker.service.ScheduleService;
+import com.kiron.amtrakTracker.service.SearchService;
 import com.kiron.amtrakTracker.service.StationService;
 import com.opencsv.exceptions.CsvValidationException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,27 +15,60 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.io.IOException;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 @RestController
 @RequestMapping("/api/station")
 public class StationController {
 
+    private static final int MAX_PAGE = 200;
+
     @Autowired
     private StationService stationService;
 
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private ScheduleService scheduleService;
+
+    @Autowired
+    private ResponseCache responseCache;
+
     @GetMapping("/get/{code}")
-    public ResponseEntity<?> station(@PathVariable String code) throws IOException {
-        //Gets all trains updated stopping at station code
+    public ResponseEntity<?> station(@PathVariable String code, @RequestParam(required = false) Long from,
+                                     @RequestParam(required = false) Long to,
+                                     @RequestParam(required = false) Integer limit,
+                                     @RequestParam(required = false) String cursor) throws JsonProcessingException {
+        //Gets all trains updated stopping at station code, a materialized timeboard is serialized once per version.
+        //from and to limit the rows to a window in epoch seconds, and limit pages through it with cursor
+        StationTimeboard timeboard = stationService.getTrainsAtStation(code);
+        boolean paged = from != null || to != null || limit != null || cursor != null;
+        if (!paged && timeboard != null && timeboard.getVersion() != 0) {
+            return responseCache.get("timeboard-" + code + "-" + timeboard.getVersion(), () -> timeboard);
+        }
+
         Map<String, Object> stationResponse = new HashMap<String, Object>();
 
-        StationTimeboard timeboard = stationService.getTrainsAtStation(code);
+        if ((limit != null && limit < 1) || (from != null && to != null && from > to)) {
+            stationResponse.put("status", 400);
+            return new ResponseEntity<>(stationResponse, HttpStatus.BAD_REQUEST);
+        }
+        StationTimeboard data = timeboard;
+        if (paged && timeboard != null) {
+            try {
+                data = timeboard.page(from, to, cursor, limit == null ? null : Math.min(limit, MAX_PAGE));
+            } catch (IllegalArgumentException e) {
+                stationResponse.put("status", 400);
+                return new ResponseEntity<>(stationResponse, HttpStatus.BAD_REQUEST);
+            }
+        }
 
         stationResponse.put("status", 200);
-        stationResponse.put("data", timeboard);
+        stationResponse.put("data", data);
         return new ResponseEntity<>(stationResponse, HttpStatus.OK);
     }
 
@@ -40,24 +78,26 @@ public class StationController {
 
         Map<String, Object> stationResponse = new HashMap<String, Object>();
 
-        Set<Station> codeResults = stationService.getStationByCode(query);
-        Set<Station> nameResults = stationService.getStationByName(query);
-
-        codeResults.addAll(nameResults);
+        List<Station> results = searchService.searchStations(query);
 
         stationResponse.put("status", 200);
-        stationResponse.put("data", codeResults);
+        stationResponse.put("data", results);
         return new ResponseEntity<>(stationResponse, HttpStatus.OK);
     }
 
     @GetMapping("/getAllStations")
-    public ResponseEntity<?> getAllStations() {
-        //Gets all stations
-
+    public ResponseEntity<?> getAllStations() throws JsonProcessingException {
+        //Gets all stations sorted by name, tagged with the version of the loaded station catalog
+        StationCatalog catalog = scheduleService.getStationCatalog();
+        if (!catalog.isEmpty()) {
+            return responseCache.get("stations-" + catalog.getVersion(), catalog::getStations);
+        }
+
+        //The catalog is only empty before the schedule is first loaded
         Map<String, Object> stationResponse = new HashMap<String, Object>();
 
         List<Station> stations = stationService.getAllStations();
-        stations.sort((s1, s2) -> s1.getName().compareToIgnoreCase(s2.getName()));
+        stations.sort(Comparator.comparing(Station::getName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)));
 
         stationResponse.put("status", 200);
         stationResponse.put("data", stations);
@@ -80,11 +120,14 @@ public class StationController {
     @PostMapping(value ="/updateStation")
     public ResponseEntity<?> updateStation(
     ) throws IOException, CsvValidationException {
-        //Updates all stations
+        //Updates all stations, an update that is already running is not started again
 
         Map<String, Object> stationResponse = new HashMap<String, Object>();
 
-        stationService.updateGTFS();
+        if (!stationService.updateGTFS()) {
+            stationResponse.put("status", 409);
+            return new ResponseEntity<>(stationResponse, HttpStatus.CONFLICT);
+        }
 
         stationResponse.put("status", 201);
         return new ResponseEntity<>(stationResponse, HttpStatus.OK);
@@ -1,77 +1,54 @@
 package com.kiron.amtrakTracker.controller;
 
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.kiron.amtrakTracker.model.TrainApiModel;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.kiron.amtrakTracker.model.TrainParsed;
-import com.kiron.amtrakTracker.model.gtfs.Station;
-import com.kiron.amtrakTracker.service.StationService;
+import com.kiron.amtrakTracker.model.TrainSnapshot;
+import com.kiron.amtrakTracker.model.spatial.TrainCluster;
+import com.kiron.amtrakTracker.model.spatial.TrainSpatialIndex;
+import com.kiron.amtrakTracker.scheduled.TrainAPIUpdate;
+import com.kiron.amtrakTracker.service.ResponseCache;
+import com.kiron.amtrakTracker.service.SearchService;
 import com.kiron.amtrakTracker.service.TrainService;
+import com.kiron.amtrakTracker.service.TrainStreamService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
-import java.net.URI;
 import java.net.URISyntaxException;
-import java.net.URL;
-import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 
-import static java.lang.Integer.parseInt;
-
 @RestController
 @RequestMapping("/api/train")
 public class TrainController {
 
+    private static final int MAX_CLOSEST = 100;
 
     @Autowired
     private TrainService trainService;
 
     @Autowired
-    private StationService StationService;
+    private SearchService searchService;
+
+    @Autowired
+    private TrainStreamService trainStreamService;
+
+    @Autowired
+    private ResponseCache responseCache;
+
+    @Autowired
+    private TrainAPIUpdate trainAPIUpdate;
 
     @PostMapping("/update")
     public ResponseEntity<?> updateAllTrains() throws IOException, URISyntaxException {
-        //Updates all trains currently running
+        //Updates all trains currently running, the same way the scheduled update does
         Map<String, Object> trainResponse = new HashMap<String, Object>();
-        URL trainUrl = new URI("https://asm-backend.transitdocs.com/map").toURL();
-        ObjectMapper mapper = new ObjectMapper();
-        TrainApiModel[] trains = mapper.readValue(trainUrl, TrainApiModel[].class);
-
-        trainService.setAllInactive();
-
-        List<TrainParsed> parsedTrains = new ArrayList<TrainParsed>();
-        for (TrainApiModel train : trains) {
-            TrainParsed parsedTrain = new TrainParsed(train);
-
-            //Get the next station, we need this to set the correct arrival time
-            Station station;
-            try {
-                station = StationService.getStationByCode(parsedTrain.getNext_station()).iterator().next();
-            } catch (NoSuchElementException e) {
-                System.out.println("Station not found for " + parsedTrain.getNext_station());
-                parsedTrains.add(parsedTrain);
-                continue;
-            }
-
-
-            //Set the correct time for arrival
-            Instant instant = Instant.ofEpochSecond(parsedTrain.getArrival_epoch());
-            ZoneId zone = ZoneId.of(station.getTime_zone());
-            LocalDateTime localDateTime = instant.atZone(zone).toLocalDateTime();
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("hh:mm a");
-            parsedTrain.setScheduled_arrival(formatter.format(localDateTime));
-
-            parsedTrains.add(parsedTrain);
-            trainService.addTrain(parsedTrain);
-        }
 
-        trainService.deleteInactiveTrains();
+        List<TrainParsed> parsedTrains = trainAPIUpdate.refreshTrains();
 
         trainResponse.put("status", 201);
         trainResponse.put("data", parsedTrains);
@@ -79,16 +56,25 @@ public class TrainController {
     }
 
     @GetMapping("/getAll")
-    public ResponseEntity<?> getAllTrains() {
-        //Gets all trains
-
-        Map<String, Object> trainResponse = new HashMap<String, Object>();
+    public ResponseEntity<?> getAllTrains(@RequestParam(required = false) Long since)
+            throws JsonProcessingException {
+        //Gets all trains sorted by number, or with since only the trains that changed after that version. Both carry
+        //the current version, a since delta from version 0 has every train and replaces the client's list
+        TrainSnapshot snapshot = trainService.getSnapshot();
+        if (since == null) {
+            return responseCache.get("trains-" + snapshot.getVersion(), snapshot.getVersion(), snapshot::getTrains);
+        }
+        //Versions that are not kept all share the delta from version 0
+        long base = trainService.getDeltaBase(since, snapshot);
+        return responseCache.get("trains-" + base + "-" + snapshot.getVersion(),
+                () -> trainService.getChangesSince(base, snapshot));
+    }
 
-        List<TrainParsed> parsedTrains = trainService.getAllTrains();
-        parsedTrains.sort(Comparator.comparing(TrainParsed::getNumber));
-        trainResponse.put("status", 200);
-        trainResponse.put("data", parsedTrains);
-        return new ResponseEntity<>(trainResponse, HttpStatus.OK);
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() {
+        //Streams live train updates, a "snapshot" event with every train on connect and a "delta" event with the
+        //upserted and removed trains after each refresh
+        return trainStreamService.subscribe();
     }
 
     @GetMapping("/search/{query}")
@@ -97,20 +83,7 @@ public class TrainController {
 
         Map<String, Object> trainResponse = new HashMap<String, Object>();
 
-        List<TrainParsed> parsedTrains = trainService.getTrainsByName(query);
-        List<TrainParsed> numberResults;
-        try {
-            numberResults = trainService.getTrainsByNumber(parseInt(query));
-        } catch (NumberFormatException e) {
-            numberResults = Collections.emptyList();
-        }
-
-        //Handle search of railroad when nothing else pops up
-        if (parsedTrains.isEmpty() && numberResults.isEmpty()) {
-            parsedTrains = trainService.getTrainsByRailroad(query);
-        }
-
-        parsedTrains.addAll(numberResults);
+        List<TrainParsed> parsedTrains = searchService.searchTrains(query);
         parsedTrains.sort(Comparator.comparing(TrainParsed::getNumber));
         trainResponse.put("status", 200);
         trainResponse.put("data", parsedTrains);
@@ -122,35 +95,82 @@ public class TrainController {
     This is here in case needed later, but not used currently
      */
     @GetMapping("/closest/{latitude}/{longitude}")
-    public ResponseEntity<?> closest(@PathVariable double latitude, @PathVariable double longitude) {
-        //Returns the five closest trains
+    public ResponseEntity<?> closest(@PathVariable double latitude, @PathVariable double longitude,
+                                     @RequestParam(defaultValue = "5") int count) {
+        //Returns the closest trains by great-circle distance, five unless count is given
 
         Map<String, Object> trainResponse = new HashMap<String, Object>();
 
-        List<TrainParsed> allTrains = trainService.getAllTrains();
-        Map<Double, TrainParsed> distanceMap = new HashMap<Double, TrainParsed>();
-        List<Double> distanceList = new ArrayList<>();
+        if (!TrainSpatialIndex.isValid(latitude, longitude) || count < 1) {
+            trainResponse.put("status", 400);
+            return new ResponseEntity<>(trainResponse, HttpStatus.BAD_REQUEST);
+        }
 
-        for (TrainParsed train : allTrains) {
-            if (train.getLatitude() == null || train.getLongitude() == null) {
-                continue;
-            }
-            Double distance = Math.sqrt((train.getLatitude() - latitude) * (train.getLatitude() - latitude) +
-                    (train.getLongitude() - longitude) * (train.getLongitude() - longitude));
+        List<TrainParsed> closestTrains = trainService.getSnapshot().getSpatialIndex()
+                .nearest(latitude, longitude, Math.min(count, MAX_CLOSEST));
 
-            distanceMap.put(distance, train);
-            distanceList.add(distance);
+        trainResponse.put("status", 200);
+        trainResponse.put("data", closestTrains);
+        return new ResponseEntity<>(trainResponse, HttpStatus.OK);
+    }
+
+    @GetMapping("/within")
+    public ResponseEntity<?> within(@RequestParam String bbox) {
+        //Returns the trains inside a map viewport, bbox is west,south,east,north in degrees
+
+        Map<String, Object> trainResponse = new HashMap<String, Object>();
+
+        double[] box = parseBbox(bbox);
+        if (box == null) {
+            trainResponse.put("status", 400);
+            return new ResponseEntity<>(trainResponse, HttpStatus.BAD_REQUEST);
         }
 
-        distanceList.sort(Comparator.comparing(Double::valueOf));
+        List<TrainParsed> trains = trainService.getSnapshot().getSpatialIndex().within(box[1], box[0], box[3], box[2]);
+
+        trainResponse.put("status", 200);
+        trainResponse.put("data", trains);
+        return new ResponseEntity<>(trainResponse, HttpStatus.OK);
+    }
 
-        List<TrainParsed> closestTrains = new ArrayList<>();
-        for (int i = 0; i < 5; ++i) {
-            closestTrains.add(distanceMap.get(distanceList.get(i)));
+    @GetMapping("/clusters")
+    public ResponseEntity<?> clusters(@RequestParam int zoom, @RequestParam(required = false) String bbox)
+            throws JsonProcessingException {
+        //Returns trains grouped for a map zoom level, optionally only inside the bbox viewport. Clusters are built
+        //once per refresh, the whole map for a zoom level is also only serialized once
+        TrainSnapshot snapshot = trainService.getSnapshot();
+        if (bbox == null) {
+            return responseCache.get("clusters-" + zoom + "-" + snapshot.getVersion(),
+                    () -> snapshot.getClusters().getClusters(zoom));
         }
 
+        Map<String, Object> trainResponse = new HashMap<String, Object>();
+
+        double[] box = parseBbox(bbox);
+        if (box == null) {
+            trainResponse.put("status", 400);
+            return new ResponseEntity<>(trainResponse, HttpStatus.BAD_REQUEST);
+        }
+
+        List<TrainCluster> clusters = snapshot.getClusters().getClusters(zoom, box[1], box[0], box[3], box[2]);
+
         trainResponse.put("status", 200);
-        trainResponse.put("data", closestTrains);
+        trainResponse.put("data", clusters);
         return new ResponseEntity<>(trainResponse, HttpStatus.OK);
     }
+
+    private static double[] parseBbox(String bbox) {
+        //Parses a west,south,east,north viewport, null when it is not one
+        double[] box;
+        try {
+            box = Arrays.stream(bbox.split(",")).mapToDouble(Double::parseDouble).toArray();
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (box.length != 4 || !TrainSpatialIndex.isValid(box[1], box[0]) || !TrainSpatialIndex.isValid(box[3], box[2])
+                || box[1] > box[3]) {
+            return null;
+        }
+        return box;
+    }
 }
@@ -1,9 +1,11 @@
 package com.kiron.amtrakTracker.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 @Data
@@ -16,6 +18,14 @@ public class StationTimeboard {
 
     private List<TimeboardRow> timeboard;
 
+    //Changes whenever the timeboard is rebuilt, responses are cached per version
+    @JsonIgnore
+    private long version;
+
+    //Only set on a page that has more rows after it, passed back to get the next page
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String next_cursor;
+
     public StationTimeboard(String code, String name, String website, String admin_area) {
         this.code = code;
         this.name = name;
@@ -36,23 +46,63 @@ public class StationTimeboard {
     }
 
     public void sortTimeboard() {
-    //Sorts the timeboard rows by date and time
-        timeboard.sort((o1, o2) -> {
-            String o1DT;
-            String o2DT;
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("hh:mm a");
-            DateTimeFormatter formatter2 = DateTimeFormatter.ofPattern("HH:mm");
-            if (o1.getDeparture() == null) {
-                o1DT = o1.getDate() + formatter2.format(formatter.parse(o1.getScheduled_departure()));
-            } else {
-                o1DT = o1.getDate() + formatter2.format(formatter.parse(o1.getDeparture()));
+        //Sorts the timeboard rows by date and time, then train number so the order is the same on every rebuild
+        timeboard.sort(Comparator.comparingLong(TimeboardRow::getSortTime)
+                .thenComparing(TimeboardRow::getNumber, Comparator.nullsLast(Comparator.naturalOrder())));
+    }
+
+    public StationTimeboard page(Long from, Long to, String cursor, Integer limit) {
+        //Rows from epoch second from to to, starting after the row of cursor and at most limit of them. The rows are
+        //sorted when the timeboard is built, so a page is found by binary search and only its rows are copied
+        if (limit != null && limit < 1) {
+            throw new IllegalArgumentException("Invalid limit " + limit);
+        }
+        int start = from == null ? 0 : firstAfter(from - 1, Integer.MAX_VALUE);
+        if (cursor != null) {
+            //The cursor is the time and train number of the last row sent, and how many rows with that time and
+            //number were sent
+            String[] parts = cursor.split("_");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid cursor " + cursor);
             }
-            if (o2.getDeparture() == null) {
-                o2DT = o2.getDate() + formatter2.format(formatter.parse(o2.getScheduled_departure()));
+            long sortTime = Long.parseLong(parts[0]);
+            int number = Integer.parseInt(parts[1]);
+            start = Math.max(start, firstAfter(sortTime, number - 1) + Integer.parseInt(parts[2]));
+        }
+        int end = to == null ? timeboard.size() : firstAfter(to, Integer.MAX_VALUE);
+        int stop = limit == null ? end : Math.max(start, Math.min(end, start + limit));
+
+        StationTimeboard page = new StationTimeboard(code, name, website, admin_area);
+        if (start < stop) {
+            page.timeboard.addAll(timeboard.subList(start, stop));
+        }
+        if (stop < end) {
+            TimeboardRow last = timeboard.get(stop - 1);
+            int number = numberOf(last);
+            int sent = stop - firstAfter(last.getSortTime(), number - 1);
+            page.next_cursor = last.getSortTime() + "_" + number + "_" + sent;
+        }
+        return page;
+    }
+
+    private int firstAfter(long sortTime, int number) {
+        //Index of the first row sorting after the time and train number
+        int low = 0;
+        int high = timeboard.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            TimeboardRow row = timeboard.get(mid);
+            if (row.getSortTime() < sortTime || (row.getSortTime() == sortTime && numberOf(row) <= number)) {
+                low = mid + 1;
             } else {
-                o2DT = o2.getDate() + formatter2.format(formatter.parse(o2.getDeparture()));
+                high = mid;
             }
-            return o1DT.compareTo(o2DT);
-        });
+        }
+        return low;
+    }
+
+    private static int numberOf(TimeboardRow row) {
+        //Rows without a train number sort last
+        return row.getNumber() == null ? Integer.MAX_VALUE : row.getNumber();
     }
 }
@@ -1,36 +1,89 @@
 package com.kiron.amtrakTracker.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 @Data
 @NoArgsConstructor
+@JsonPropertyOrder({"number", "name", "scheduled_arrival", "scheduled_departure", "arrival", "departure",
+        "destination", "date", "late_arrival", "late_departure", "actual_time"})
 public class TimeboardRow {
+    /*
+    Times are kept as epoch seconds and only formatted in the station's zone when the row is serialized
+     */
+    private static final Map<ZoneId, DateTimeFormatter> TIME_FORMATTERS = new ConcurrentHashMap<>();
+    private static final Map<ZoneId, DateTimeFormatter> DATE_FORMATTERS = new ConcurrentHashMap<>();
+    private static final DateTimeFormatter SERVICE_DATE_FORMATTER = DateTimeFormatter.ofPattern("MM/dd");
 
     private Integer number;
     private String name;
-    private String scheduled_arrival;
-    private String scheduled_departure;
-    private String arrival;
-    private String departure;
     private String destination;
-    private String date;
     private Boolean late_arrival;
     private Boolean late_departure;
     private Long actual_time;
 
-    public TimeboardRow(TimeboardRow row, boolean copyDate) {
-        this.number = row.getNumber();
-        this.name = row.getName();
-        this.scheduled_arrival = row.getScheduled_arrival();
-        this.scheduled_departure = row.getScheduled_departure();
-        this.arrival = row.getArrival();
-        this.departure = row.getDeparture();
-        this.destination = row.getDestination();
-        if (copyDate) {
-            this.date = row.getDate();
+    @JsonIgnore
+    private Long scheduled_arrival_epoch;
+    @JsonIgnore
+    private Long scheduled_departure_epoch;
+    @JsonIgnore
+    private Long arrival_epoch;
+    @JsonIgnore
+    private Long departure_epoch;
+    @JsonIgnore
+    private LocalDate service_date;
+    @JsonIgnore
+    private ZoneId zone;
+
+    public String getScheduled_arrival() {
+        return formatTime(scheduled_arrival_epoch);
+    }
+
+    public String getScheduled_departure() {
+        return formatTime(scheduled_departure_epoch);
+    }
+
+    public String getArrival() {
+        return formatTime(arrival_epoch);
+    }
+
+    public String getDeparture() {
+        return formatTime(departure_epoch);
+    }
+
+    public String getDate() {
+        //Date of the realtime time at the station, the service date for rows without one
+        if (actual_time != null) {
+            return DATE_FORMATTERS.computeIfAbsent(zone, z -> DateTimeFormatter.ofPattern("MM/dd").withZone(z))
+                    .format(Instant.ofEpochSecond(actual_time));
+        }
+        return service_date == null ? null : service_date.format(SERVICE_DATE_FORMATTER);
+    }
+
+    @JsonIgnore
+    public long getSortTime() {
+        //Departure, or arrival at the last stop, realtime times before scheduled ones
+        Long time = departure_epoch != null ? departure_epoch
+                : scheduled_departure_epoch != null ? scheduled_departure_epoch
+                : arrival_epoch != null ? arrival_epoch
+                : scheduled_arrival_epoch;
+        return time == null ? Long.MAX_VALUE : time;
+    }
+
+    private String formatTime(Long epoch) {
+        if (epoch == null) {
+            return null;
         }
-        this.late_arrival = false;
-        this.late_departure = false;
+        return TIME_FORMATTERS.computeIfAbsent(zone, z -> DateTimeFormatter.ofPattern("hh:mm a").withZone(z))
+                .format(Instant.ofEpochSecond(epoch));
     }
 }
@@ -0,0 +1,47 @@
+package com.kiron.amtrakTracker.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+
+import java.util.*;
+
+@Getter
+public class TrainDelta {
+    /*
+    Changes between two train snapshots, trains that were added or changed and the ids of trains that are gone
+     */
+    private final long from_version;
+    private final long version;
+    private final List<TrainParsed> upserted;
+    private final List<String> removed;
+
+    public TrainDelta(long from_version, long version, List<TrainParsed> upserted, List<String> removed) {
+        this.from_version = from_version;
+        this.version = version;
+        this.upserted = Collections.unmodifiableList(upserted);
+        this.removed = Collections.unmodifiableList(removed);
+    }
+
+    public static TrainDelta between(long fromVersion, Map<String, TrainParsed> from,
+                                     long version, Map<String, TrainParsed> to) {
+        //Compares two snapshots by id, a train is upserted when it is new or any of its fields changed
+        List<TrainParsed> upserted = new ArrayList<>();
+        for (TrainParsed train : to.values()) {
+            if (!train.equals(from.get(train.getId()))) {
+                upserted.add(train);
+            }
+        }
+        List<String> removed = new ArrayList<>();
+        for (String id : from.keySet()) {
+            if (!to.containsKey(id)) {
+                removed.add(id);
+            }
+        }
+        return new TrainDelta(fromVersion, version, upserted, removed);
+    }
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return upserted.isEmpty() && removed.isEmpty();
+    }
+}
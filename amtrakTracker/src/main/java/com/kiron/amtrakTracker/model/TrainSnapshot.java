@@ -0,0 +1,49 @@
+package com.kiron.amtrakTracker.model;
+
+import com.kiron.amtrakTracker.model.spatial.TrainClusters;
+import com.kiron.amtrakTracker.model.spatial.TrainSpatialIndex;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.*;
+
+@Getter
+public class TrainSnapshot {
+    /*
+    Immutable version of all running trains, a new one is published on every refresh. Trains are sorted by number,
+    the delta holds what changed since the previous snapshot, the spatial index and clusters hold their positions
+     */
+    private final long version;
+    private final Instant createdAt;
+    private final List<TrainParsed> trains;
+    private final Map<String, TrainParsed> trainsById;
+    private final TrainDelta delta;
+    private final TrainSpatialIndex spatialIndex;
+    private final TrainClusters clusters;
+
+    public TrainSnapshot(long version, Instant createdAt, Collection<TrainParsed> trains, TrainSnapshot previous) {
+        this.version = version;
+        this.createdAt = createdAt;
+        Map<String, TrainParsed> byId = new LinkedHashMap<>();
+        for (TrainParsed train : trains) {
+            byId.put(train.getId(), train);
+        }
+        List<TrainParsed> sorted = new ArrayList<>(byId.values());
+        sorted.sort(Comparator.comparing(TrainParsed::getNumber, Comparator.nullsLast(Comparator.naturalOrder())));
+        this.trains = Collections.unmodifiableList(sorted);
+        this.trainsById = Collections.unmodifiableMap(byId);
+        this.delta = previous == null
+                ? new TrainDelta(version, version, Collections.emptyList(), Collections.emptyList())
+                : TrainDelta.between(previous.getVersion(), previous.getTrainsById(), version, byId);
+        this.spatialIndex = new TrainSpatialIndex(sorted);
+        this.clusters = new TrainClusters(sorted);
+    }
+
+    public static TrainSnapshot empty() {
+        return new TrainSnapshot(0L, Instant.EPOCH, Collections.emptyList(), null);
+    }
+
+    public TrainParsed getTrain(String id) {
+        return trainsById.get(id);
+    }
+}
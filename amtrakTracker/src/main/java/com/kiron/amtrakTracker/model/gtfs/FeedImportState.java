@@ -0,0 +1,30 @@
+package com.kiron.amtrakTracker.model.gtfs;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Entity
+@NoArgsConstructor
+public class FeedImportState {
+    /*
+    What was last imported from a static GTFS feed. The feed itself is stored under the agency name with the http
+    validators of its zip, and each imported file under "<agency>/<file name>" with the SHA-256 of its contents
+     */
+    @Id
+    private String id;
+
+    private String etag;
+    private String last_modified;
+    private String sha256;
+    private Long imported_at;
+
+    //Version of the importer's parsing, files and feeds imported by an older one are imported again
+    private Integer format_version;
+
+    public FeedImportState(String id) {
+        this.id = id;
+    }
+}
@@ -0,0 +1,60 @@
+package com.kiron.amtrakTracker.model.gtfs;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+
+public final class GTFSTime {
+    /*
+    GTFS schedule times are seconds after the start of a service day, written "HH:mm:ss" and able to go past 24
+    hours. The service day starts twelve hours before noon in the agency's zone, which is midnight except on days
+    daylight saving time changes
+     */
+    public static final int MISSING = -1;
+
+    private static final int HALF_DAY = 12 * 60 * 60;
+
+    private GTFSTime() {
+    }
+
+    public static int parse(String time) {
+        //Converts a GTFS "HH:mm:ss" time to seconds after the start of the service day, MISSING if there is none
+        if (time == null || time.isEmpty()) {
+            return MISSING;
+        }
+        int seconds = 0;
+        int field = 0;
+        for (int i = 0; i < time.length(); i++) {
+            char c = time.charAt(i);
+            if (c == ':') {
+                seconds = (seconds + field) * 60;
+                field = 0;
+            } else if (c >= '0' && c <= '9') {
+                field = field * 10 + (c - '0');
+            } else if (c != ' ') {
+                return MISSING;
+            }
+        }
+        return seconds + field;
+    }
+
+    public static String format(int seconds) {
+        //Converts seconds after the start of the service day back to the GTFS "HH:mm:ss" time
+        if (seconds < 0) {
+            return null;
+        }
+        return String.format("%02d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+    }
+
+    public static long serviceDayStart(LocalDate serviceDate, ZoneId zone) {
+        //Epoch second the service day starts at
+        return serviceDate.atTime(LocalTime.NOON).atZone(zone).toEpochSecond() - HALF_DAY;
+    }
+
+    public static LocalDate serviceDate(long epochSecond, int seconds, ZoneId zone) {
+        //Service date of a stop at seconds in the schedule that happened at epochSecond, delays of up to twelve
+        //hours still land on the right date
+        return LocalDate.ofInstant(Instant.ofEpochSecond(epochSecond - seconds + HALF_DAY), zone);
+    }
+}
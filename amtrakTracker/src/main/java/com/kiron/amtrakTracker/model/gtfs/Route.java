@@ -1,6 +1,8 @@
 package com.kiron.amtrakTracker.model.gtfs;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import lombok.Data;
 
@@ -9,7 +11,14 @@ import lombok.Data;
 public class Route {
 
     @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    //Id of the route in its GTFS feed, unique across feeds
     private String route_id;
 
     private String route_name;
+
+    //Name of the GTFSAgency this row was imported from
+    private String agency;
 }
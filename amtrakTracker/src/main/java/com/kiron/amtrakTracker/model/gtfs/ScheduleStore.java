@@ -0,0 +1,367 @@
+package com.kiron.amtrakTracker.model.gtfs;
+
+import java.time.LocalDate;
+import java.util.*;
+
+public class ScheduleStore {
+    /*
+    Immutable, column oriented copy of the static GTFS schedule. Stop ids, trip ids, route names and destinations are
+    dictionary encoded to ints, and the stop times are sorted by stop then departure so that all stop times of a
+    station are one contiguous range found through stopOffsets. The stops of each trip are indexed the same way
+    through tripStopOffsets. Trips are linked to the service calendar of their feed, so stop times can be limited to
+    the trips running on given dates
+     */
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private final String[] stopIds;
+    private final String[] stopTimeZones;
+    private final Map<String, Integer> stopCodes;
+
+    private final String[] tripIds;
+    private final int[] tripNumbers;
+    private final int[] tripDestinations;
+    private final int[] tripRouteNames;
+    private final int[] tripAgencies;
+    private final int[] tripServices;
+    private final String[] destinations;
+    private final String[] routeNames;
+    private final String[] agencies;
+
+    private final int[] stopOffsets;
+    private final int[] stopTimeTrips;
+    private final int[] stopTimeSequences;
+    private final int[] stopTimeArrivals;
+    private final int[] stopTimeDepartures;
+
+    private final Map<String, Integer> tripCodes;
+    private final int[] tripStopOffsets;
+    private final int[] tripStops;
+
+    private final ServiceDays serviceDays;
+
+    private ScheduleStore(String[] stopIds, String[] stopTimeZones, String[] tripIds, int[] tripNumbers,
+                          int[] tripDestinations, int[] tripRouteNames, int[] tripAgencies, int[] tripServices,
+                          String[] destinations, String[] routeNames, String[] agencies, ServiceDays serviceDays,
+                          int[] stopOffsets, int[] stopTimeTrips, int[] stopTimeSequences, int[] stopTimeArrivals,
+                          int[] stopTimeDepartures) {
+        this.stopIds = stopIds;
+        this.stopTimeZones = stopTimeZones;
+        this.stopCodes = new HashMap<>(stopIds.length * 2);
+        for (int i = 0; i < stopIds.length; i++) {
+            stopCodes.put(stopIds[i], i);
+        }
+        this.tripIds = tripIds;
+        this.tripNumbers = tripNumbers;
+        this.tripDestinations = tripDestinations;
+        this.tripRouteNames = tripRouteNames;
+        this.tripAgencies = tripAgencies;
+        this.tripServices = tripServices;
+        this.serviceDays = serviceDays;
+        this.destinations = destinations;
+        this.routeNames = routeNames;
+        this.agencies = agencies;
+        this.stopOffsets = stopOffsets;
+        this.stopTimeTrips = stopTimeTrips;
+        this.stopTimeSequences = stopTimeSequences;
+        this.stopTimeArrivals = stopTimeArrivals;
+        this.stopTimeDepartures = stopTimeDepartures;
+
+        //Counting sort of the stop of every stop time by trip
+        this.tripCodes = new HashMap<>(tripIds.length * 2);
+        for (int i = 0; i < tripIds.length; i++) {
+            tripCodes.put(tripIds[i], i);
+        }
+        this.tripStopOffsets = new int[tripIds.length + 1];
+        for (int trip : stopTimeTrips) {
+            tripStopOffsets[trip + 1]++;
+        }
+        for (int i = 0; i < tripIds.length; i++) {
+            tripStopOffsets[i + 1] += tripStopOffsets[i];
+        }
+        this.tripStops = new int[stopTimeTrips.length];
+        int[] next = Arrays.copyOf(tripStopOffsets, tripIds.length);
+        for (int stop = 0; stop < stopIds.length; stop++) {
+            for (int i = stopOffsets[stop]; i < stopOffsets[stop + 1]; i++) {
+                tripStops[next[stopTimeTrips[i]]++] = stop;
+            }
+        }
+    }
+
+    public static ScheduleStore empty() {
+        return new Builder().build();
+    }
+
+    public boolean isEmpty() {
+        return stopTimeTrips.length == 0;
+    }
+
+    public int getStopTimeCount() {
+        return stopTimeTrips.length;
+    }
+
+    public List<TimeboardStopTime> getStopTimes(String stopId) {
+        //All stop times at a stop ordered by departure, only the rows of that stop are materialised
+        Integer stop = stopCodes.get(stopId);
+        if (stop == null) {
+            return new ArrayList<>();
+        }
+        int from = stopOffsets[stop];
+        int to = stopOffsets[stop + 1];
+        List<TimeboardStopTime> stopTimes = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            stopTimes.add(new ScheduledStopTime(this, stop, i));
+        }
+        return stopTimes;
+    }
+
+    public List<TimeboardStopTime> getStopTimes(String stopId, LocalDate from, LocalDate to) {
+        //Stop times at a stop whose trips run on a service day that puts the stop between from and to, stop times
+        //past 24:00:00 are on a later day than their service day
+        Integer stop = stopCodes.get(stopId);
+        if (stop == null) {
+            return new ArrayList<>();
+        }
+        List<TimeboardStopTime> stopTimes = new ArrayList<>();
+        for (int i = stopOffsets[stop]; i < stopOffsets[stop + 1]; i++) {
+            int time = Math.max(stopTimeArrivals[i], stopTimeDepartures[i]);
+            int dayOffset = Math.max(time, 0) / SECONDS_PER_DAY;
+            int service = tripServices[stopTimeTrips[i]];
+            for (LocalDate date = from.minusDays(dayOffset); !date.isAfter(to.minusDays(dayOffset));
+                 date = date.plusDays(1)) {
+                if (serviceDays.isActive(service, date)) {
+                    stopTimes.add(new ScheduledStopTime(this, stop, i));
+                    break;
+                }
+            }
+        }
+        return stopTimes;
+    }
+
+    public boolean isRunning(String tripId, LocalDate serviceDate) {
+        //Whether a trip runs on a service date, trips not in the schedule or without a calendar are assumed to run
+        Integer trip = tripCodes.get(tripId);
+        return trip == null || serviceDays.isActive(tripServices[trip], serviceDate);
+    }
+
+    public Set<String> getStopIdsOfTrip(String tripId) {
+        //Every stop a trip calls at, empty for trips not in the schedule
+        Integer trip = tripCodes.get(tripId);
+        if (trip == null) {
+            return Collections.emptySet();
+        }
+        Set<String> stops = new HashSet<>();
+        for (int i = tripStopOffsets[trip]; i < tripStopOffsets[trip + 1]; i++) {
+            stops.add(stopIds[tripStops[i]]);
+        }
+        return stops;
+    }
+
+    private record ScheduledStopTime(ScheduleStore store, int stop, int row) implements TimeboardStopTime {
+        /*
+        Row view over the stop time columns, used in place of the database projection
+         */
+        @Override
+        public String getTrip_id() {
+            return store.tripIds[store.stopTimeTrips[row]];
+        }
+
+        @Override
+        public Integer getStop_sequence() {
+            return store.stopTimeSequences[row];
+        }
+
+        @Override
+        public Integer getArrival_time() {
+            return store.stopTimeArrivals[row];
+        }
+
+        @Override
+        public Integer getDeparture_time() {
+            return store.stopTimeDepartures[row];
+        }
+
+        @Override
+        public String getStop_id() {
+            return store.stopIds[stop];
+        }
+
+        @Override
+        public Integer getNumber() {
+            return store.tripNumbers[store.stopTimeTrips[row]];
+        }
+
+        @Override
+        public String getDestination() {
+            return store.destinations[store.tripDestinations[store.stopTimeTrips[row]]];
+        }
+
+        @Override
+        public String getRoute_name() {
+            return store.routeNames[store.tripRouteNames[store.stopTimeTrips[row]]];
+        }
+
+        @Override
+        public String getTime_zone() {
+            return store.stopTimeZones[stop];
+        }
+
+        @Override
+        public String getAgency() {
+            return store.agencies[store.tripAgencies[store.stopTimeTrips[row]]];
+        }
+    }
+
+    public static class Builder {
+        /*
+        Collects the schedule row by row, trips, routes and stations can be added in any order relative to stop times
+         */
+        private final Map<String, Integer> stopCodes = new HashMap<>();
+        private final List<String> stopIds = new ArrayList<>();
+        private final Map<String, String> stationTimeZones = new HashMap<>();
+
+        private final Map<String, Integer> tripCodes = new HashMap<>();
+        private final List<String> tripIds = new ArrayList<>();
+        private final Map<String, Trip> trips = new HashMap<>();
+        private final Map<String, String> routeNames = new HashMap<>();
+        private final ServiceDays.Builder serviceDays = new ServiceDays.Builder();
+
+        private int size = 0;
+        private int[] stops = new int[1024];
+        private int[] stopTimeTrips = new int[1024];
+        private int[] sequences = new int[1024];
+        private int[] arrivals = new int[1024];
+        private int[] departures = new int[1024];
+
+        public Builder addStation(Station station) {
+            stationTimeZones.put(station.getId(), station.getTime_zone());
+            return this;
+        }
+
+        public Builder addRoute(Route route) {
+            routeNames.put(route.getRoute_id(), route.getRoute_name());
+            return this;
+        }
+
+        public Builder addTrip(Trip trip) {
+            trips.put(trip.getTrip_id(), trip);
+            return this;
+        }
+
+        public Builder addCalendar(ServiceCalendar calendar) {
+            serviceDays.addCalendar(calendar);
+            return this;
+        }
+
+        public Builder addCalendarDate(ServiceCalendarDate calendarDate) {
+            serviceDays.addCalendarDate(calendarDate);
+            return this;
+        }
+
+        public Builder addStopTime(String tripId, int stopSequence, int arrival, int departure, String stopId) {
+            if (size == stops.length) {
+                int capacity = size * 2;
+                stops = Arrays.copyOf(stops, capacity);
+                stopTimeTrips = Arrays.copyOf(stopTimeTrips, capacity);
+                sequences = Arrays.copyOf(sequences, capacity);
+                arrivals = Arrays.copyOf(arrivals, capacity);
+                departures = Arrays.copyOf(departures, capacity);
+            }
+            stops[size] = code(stopCodes, stopIds, stopId);
+            stopTimeTrips[size] = code(tripCodes, tripIds, tripId);
+            sequences[size] = stopSequence;
+            arrivals[size] = arrival;
+            departures[size] = departure;
+            size++;
+            return this;
+        }
+
+        public ScheduleStore build() {
+            //Encodes the trips that have a route, stop times of unknown trips or routes are dropped as they could not
+            //be shown on a timeboard anyway
+            Map<String, Integer> destinationCodes = new HashMap<>();
+            List<String> destinations = new ArrayList<>();
+            Map<String, Integer> routeCodes = new HashMap<>();
+            List<String> encodedRoutes = new ArrayList<>();
+            Map<String, Integer> agencyCodes = new HashMap<>();
+            List<String> agencies = new ArrayList<>();
+
+            int[] tripNumbers = new int[tripIds.size()];
+            int[] tripDestinations = new int[tripIds.size()];
+            int[] tripRouteNames = new int[tripIds.size()];
+            int[] tripAgencies = new int[tripIds.size()];
+            ServiceDays days = serviceDays.build();
+            int[] tripServices = new int[tripIds.size()];
+            Arrays.fill(tripServices, ServiceDays.UNKNOWN);
+            boolean[] known = new boolean[tripIds.size()];
+            for (int i = 0; i < tripIds.size(); i++) {
+                Trip trip = trips.get(tripIds.get(i));
+                if (trip == null || !routeNames.containsKey(trip.getRoute_id())) {
+                    continue;
+                }
+                known[i] = true;
+                tripNumbers[i] = trip.getNumber() == null ? 0 : trip.getNumber();
+                tripDestinations[i] = code(destinationCodes, destinations, trip.getDestination());
+                tripRouteNames[i] = code(routeCodes, encodedRoutes, routeNames.get(trip.getRoute_id()));
+                tripAgencies[i] = code(agencyCodes, agencies, trip.getAgency());
+                tripServices[i] = days.getCode(trip.getAgency(), trip.getService_id());
+            }
+
+            //Counting sort of the stop times by stop, then each stop's range is sorted by departure
+            int[] stopOffsets = new int[stopIds.size() + 1];
+            for (int i = 0; i < size; i++) {
+                if (known[stopTimeTrips[i]]) {
+                    stopOffsets[stops[i] + 1]++;
+                }
+            }
+            for (int i = 0; i < stopIds.size(); i++) {
+                stopOffsets[i + 1] += stopOffsets[i];
+            }
+            int count = stopOffsets[stopIds.size()];
+            long[] order = new long[count];
+            int[] next = Arrays.copyOf(stopOffsets, stopIds.size());
+            for (int i = 0; i < size; i++) {
+                if (known[stopTimeTrips[i]]) {
+                    //Departure in the high bits and the row in the low bits, so sorting the longs sorts the rows
+                    order[next[stops[i]]++] = ((long) (departures[i] + 1) << 32) | i;
+                }
+            }
+            for (int i = 0; i < stopIds.size(); i++) {
+                Arrays.sort(order, stopOffsets[i], stopOffsets[i + 1]);
+            }
+
+            int[] sortedTrips = new int[count];
+            int[] sortedSequences = new int[count];
+            int[] sortedArrivals = new int[count];
+            int[] sortedDepartures = new int[count];
+            for (int i = 0; i < count; i++) {
+                int row = (int) order[i];
+                sortedTrips[i] = stopTimeTrips[row];
+                sortedSequences[i] = sequences[row];
+                sortedArrivals[i] = arrivals[row];
+                sortedDepartures[i] = departures[row];
+            }
+
+            String[] stopTimeZones = new String[stopIds.size()];
+            for (int i = 0; i < stopIds.size(); i++) {
+                stopTimeZones[i] = stationTimeZones.get(stopIds.get(i));
+            }
+
+            return new ScheduleStore(stopIds.toArray(new String[0]), stopTimeZones, tripIds.toArray(new String[0]),
+                    tripNumbers, tripDestinations, tripRouteNames, tripAgencies, tripServices,
+                    destinations.toArray(new String[0]), encodedRoutes.toArray(new String[0]),
+                    agencies.toArray(new String[0]), days, stopOffsets, sortedTrips, sortedSequences, sortedArrivals,
+                    sortedDepartures);
+        }
+
+        private static int code(Map<String, Integer> codes, List<String> values, String value) {
+            //Returns the dictionary code of a value, adding it to the dictionary if it is new
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+    }
+}
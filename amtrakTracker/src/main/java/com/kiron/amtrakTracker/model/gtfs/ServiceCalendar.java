@@ -0,0 +1,34 @@
+package com.kiron.amtrakTracker.model.gtfs;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+@Entity
+@IdClass(ServiceCalendarId.class)
+public class ServiceCalendar {
+    /*
+    Row of a feed's calendar.txt, the weekdays a service runs on between two dates. Service ids are only unique
+    within a feed, so they are keyed with the agency
+     */
+    @Id
+    private String agency;
+
+    @Id
+    private String service_id;
+
+    private Boolean monday;
+    private Boolean tuesday;
+    private Boolean wednesday;
+    private Boolean thursday;
+    private Boolean friday;
+    private Boolean saturday;
+    private Boolean sunday;
+
+    private LocalDate start_date;
+    private LocalDate end_date;
+}
@@ -0,0 +1,30 @@
+package com.kiron.amtrakTracker.model.gtfs;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+@Entity
+@IdClass(ServiceCalendarDateId.class)
+public class ServiceCalendarDate {
+    /*
+    Row of a feed's calendar_dates.txt, a date a service is added on (exception type 1) or removed from (2)
+     */
+    public static final int ADDED = 1;
+    public static final int REMOVED = 2;
+
+    @Id
+    private String agency;
+
+    @Id
+    private String service_id;
+
+    @Id
+    private LocalDate date;
+
+    private Integer exception_type;
+}
@@ -0,0 +1,31 @@
+package com.kiron.amtrakTracker.model.gtfs;
+
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+@NoArgsConstructor
+@AllArgsConstructor
+public class ServiceCalendarDateId implements Serializable {
+    private String agency;
+    private String service_id;
+    private LocalDate date;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ServiceCalendarDateId serviceCalendarDateId = (ServiceCalendarDateId) o;
+        return Objects.equals(agency, serviceCalendarDateId.agency) &&
+                Objects.equals(service_id, serviceCalendarDateId.service_id) &&
+                Objects.equals(date, serviceCalendarDateId.date);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(agency, service_id, date);
+    }
+}
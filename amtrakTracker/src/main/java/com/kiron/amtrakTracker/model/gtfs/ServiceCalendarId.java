@@ -0,0 +1,28 @@
+package com.kiron.amtrakTracker.model.gtfs;
+
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+@NoArgsConstructor
+@AllArgsConstructor
+public class ServiceCalendarId implements Serializable {
+    private String agency;
+    private String service_id;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ServiceCalendarId serviceCalendarId = (ServiceCalendarId) o;
+        return Objects.equals(agency, serviceCalendarId.agency) &&
+                Objects.equals(service_id, serviceCalendarId.service_id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(agency, service_id);
+    }
+}
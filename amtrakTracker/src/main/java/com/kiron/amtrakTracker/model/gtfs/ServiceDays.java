@@ -0,0 +1,134 @@
+package com.kiron.amtrakTracker.model.gtfs;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.*;
+
+public class ServiceDays {
+    /*
+    The dates every service of the schedule runs on, one bit per day from the earliest calendar date, so checking a
+    service on a date is a single bit lookup. Calendars are applied first and calendar dates then add or remove
+    single days
+     */
+    public static final int UNKNOWN = -1;
+
+    private final Map<String, Integer> serviceCodes;
+    private final long firstDay;
+    private final BitSet[] days;
+
+    private ServiceDays(Map<String, Integer> serviceCodes, long firstDay, BitSet[] days) {
+        this.serviceCodes = serviceCodes;
+        this.firstDay = firstDay;
+        this.days = days;
+    }
+
+    public static ServiceDays empty() {
+        return new Builder().build();
+    }
+
+    public int getCode(String agency, String serviceId) {
+        //Code of a service, UNKNOWN for services without calendar data
+        if (serviceId == null) {
+            return UNKNOWN;
+        }
+        return serviceCodes.getOrDefault(key(agency, serviceId), UNKNOWN);
+    }
+
+    public int size() {
+        return days.length;
+    }
+
+    public boolean isActive(int service, LocalDate date) {
+        //Services without calendar data are assumed to run every day, like before calendars were imported
+        if (service == UNKNOWN) {
+            return true;
+        }
+        long day = date.toEpochDay() - firstDay;
+        return day >= 0 && day <= Integer.MAX_VALUE && days[service].get((int) day);
+    }
+
+    public BitSet getActiveServices(LocalDate date) {
+        //Every service running on date
+        BitSet active = new BitSet(days.length);
+        for (int i = 0; i < days.length; i++) {
+            if (isActive(i, date)) {
+                active.set(i);
+            }
+        }
+        return active;
+    }
+
+    private static String key(String agency, String serviceId) {
+        return agency + "/" + serviceId;
+    }
+
+    public static class Builder {
+        private final List<ServiceCalendar> calendars = new ArrayList<>();
+        private final List<ServiceCalendarDate> calendarDates = new ArrayList<>();
+
+        public Builder addCalendar(ServiceCalendar calendar) {
+            if (calendar.getStart_date() != null && calendar.getEnd_date() != null) {
+                calendars.add(calendar);
+            }
+            return this;
+        }
+
+        public Builder addCalendarDate(ServiceCalendarDate calendarDate) {
+            if (calendarDate.getDate() != null && calendarDate.getException_type() != null) {
+                calendarDates.add(calendarDate);
+            }
+            return this;
+        }
+
+        public ServiceDays build() {
+            long firstDay = Long.MAX_VALUE;
+            for (ServiceCalendar calendar : calendars) {
+                firstDay = Math.min(firstDay, calendar.getStart_date().toEpochDay());
+            }
+            for (ServiceCalendarDate calendarDate : calendarDates) {
+                firstDay = Math.min(firstDay, calendarDate.getDate().toEpochDay());
+            }
+
+            Map<String, Integer> serviceCodes = new HashMap<>();
+            List<BitSet> days = new ArrayList<>();
+            for (ServiceCalendar calendar : calendars) {
+                BitSet bits = bits(serviceCodes, days, calendar.getAgency(), calendar.getService_id());
+                boolean[] weekdays = {isTrue(calendar.getMonday()), isTrue(calendar.getTuesday()),
+                        isTrue(calendar.getWednesday()), isTrue(calendar.getThursday()), isTrue(calendar.getFriday()),
+                        isTrue(calendar.getSaturday()), isTrue(calendar.getSunday())};
+                for (LocalDate date = calendar.getStart_date(); !date.isAfter(calendar.getEnd_date());
+                     date = date.plusDays(1)) {
+                    if (weekdays[date.getDayOfWeek().getValue() - DayOfWeek.MONDAY.getValue()]) {
+                        bits.set((int) (date.toEpochDay() - firstDay));
+                    }
+                }
+            }
+            for (ServiceCalendarDate calendarDate : calendarDates) {
+                BitSet bits = bits(serviceCodes, days, calendarDate.getAgency(), calendarDate.getService_id());
+                int day = (int) (calendarDate.getDate().toEpochDay() - firstDay);
+                if (calendarDate.getException_type() == ServiceCalendarDate.ADDED) {
+                    bits.set(day);
+                } else if (calendarDate.getException_type() == ServiceCalendarDate.REMOVED) {
+                    bits.clear(day);
+                }
+            }
+            return new ServiceDays(serviceCodes, firstDay, days.toArray(new BitSet[0]));
+        }
+
+        private static BitSet bits(Map<String, Integer> serviceCodes, List<BitSet> days, String agency,
+                                   String serviceId) {
+            //Days of a service, adding it if it is new
+            Integer code = serviceCodes.get(key(agency, serviceId));
+            if (code == null) {
+                code = days.size();
+                serviceCodes.put(key(agency, serviceId), code);
+                days.add(new BitSet());
+            }
+            return days.get(code);
+        }
+
+        private static boolean isTrue(Boolean value) {
+            return Boolean.TRUE.equals(value);
+        }
+    }
+}
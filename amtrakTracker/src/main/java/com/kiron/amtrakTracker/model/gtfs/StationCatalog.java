@@ -0,0 +1,109 @@
+package com.kiron.amtrakTracker.model.gtfs;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+public class StationCatalog {
+    /*
+    Immutable lookup of stations by exact code and id, each with its time zone resolved and a formatter for it. The
+    version changes with every catalog that is loaded
+     */
+    private static final ZoneId DEFAULT_ZONE = ZoneId.of("America/New_York");
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("hh:mm a");
+
+    private final long version;
+    private final Map<String, Entry> byCode;
+    private final Map<String, Entry> byId;
+    private final List<Station> stations;
+
+    public StationCatalog(long version, Collection<Station> stations) {
+        this.version = version;
+        Map<String, Entry> byCode = new HashMap<>(stations.size() * 2);
+        Map<String, Entry> byId = new HashMap<>(stations.size() * 2);
+        for (Station station : stations) {
+            Entry entry = new Entry(station, resolveZone(station.getTime_zone()));
+            if (station.getCode() != null) {
+                byCode.putIfAbsent(station.getCode(), entry);
+            }
+            byId.put(station.getId(), entry);
+        }
+        this.byCode = Collections.unmodifiableMap(byCode);
+        this.byId = Collections.unmodifiableMap(byId);
+
+        List<Station> sorted = new ArrayList<>(stations);
+        sorted.sort(Comparator.comparing(Station::getName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)));
+        this.stations = Collections.unmodifiableList(sorted);
+    }
+
+    public static StationCatalog empty() {
+        return new StationCatalog(0L, Collections.emptyList());
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<Station> getStations() {
+        //All stations sorted by name
+        return stations;
+    }
+
+    public boolean isEmpty() {
+        return byId.isEmpty();
+    }
+
+    public Entry getByCode(String code) {
+        return code == null ? null : byCode.get(code);
+    }
+
+    public Entry getById(String id) {
+        return id == null ? null : byId.get(id);
+    }
+
+    public Collection<Entry> getEntries() {
+        return byId.values();
+    }
+
+    public static ZoneId resolveZone(String timeZone) {
+        //Stations without a valid time zone are treated as eastern time, like the rest of the schedule
+        if (timeZone == null) {
+            return DEFAULT_ZONE;
+        }
+        try {
+            return ZoneId.of(timeZone);
+        } catch (DateTimeException e) {
+            return DEFAULT_ZONE;
+        }
+    }
+
+    public static class Entry {
+        /*
+        A station with its resolved zone and a 12 hour time formatter in that zone
+         */
+        private final Station station;
+        private final ZoneId zone;
+        private final DateTimeFormatter timeFormatter;
+
+        private Entry(Station station, ZoneId zone) {
+            this.station = station;
+            this.zone = zone;
+            this.timeFormatter = TIME_FORMAT.withZone(zone);
+        }
+
+        public Station getStation() {
+            return station;
+        }
+
+        public ZoneId getZone() {
+            return zone;
+        }
+
+        public String formatTime(long epochSecond) {
+            //Formats epoch time to the 12 hour format in the station's time zone
+            return timeFormatter.format(Instant.ofEpochSecond(epochSecond));
+        }
+    }
+}
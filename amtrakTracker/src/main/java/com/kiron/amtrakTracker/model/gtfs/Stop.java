@@ -0,0 +1,21 @@
+package com.kiron.amtrakTracker.model.gtfs;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import lombok.Data;
+
+@Data
+@Entity
+public class Stop {
+    /*
+    Every stop id seen in a stop_times.txt, so stop times can reference stops by an integer. Stations share the stop id
+    of their stop
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    private String stop_id;
+}
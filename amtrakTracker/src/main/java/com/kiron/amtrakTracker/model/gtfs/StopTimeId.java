@@ -4,25 +4,24 @@ import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
 
 import java.io.Serializable;
+import java.util.Objects;
 
 @NoArgsConstructor
 @AllArgsConstructor
 public class StopTimeId implements Serializable {
-    private String trip_id;
-    private int stop_sequence;
-    private String arrival_time;
+    private Integer trip;
+    private Integer stop_sequence;
 
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         StopTimeId stopTimeId = (StopTimeId) o;
-        return trip_id.equals(stopTimeId.trip_id) && (stop_sequence == stopTimeId.stop_sequence) &&
-                arrival_time.equals(stopTimeId.arrival_time);
+        return Objects.equals(trip, stopTimeId.trip) && Objects.equals(stop_sequence, stopTimeId.stop_sequence);
     }
 
     @Override
     public int hashCode() {
-        return 11 * (trip_id.hashCode() + stop_sequence + arrival_time.hashCode());
+        return Objects.hash(trip, stop_sequence);
     }
 }
@@ -10,17 +10,17 @@ import lombok.Data;
 @IdClass(StopTimeId.class)
 public class StopTimes {
 
+    //Id of the Trip
     @Id
-    private String trip_id;
+    private Integer trip;
 
     @Id
     private Integer stop_sequence;
 
-    @Id
-    private String arrival_time;
-
-    private String departure_time;
-    private String stop_id;
-
+    //Id of the Stop
+    private Integer stop;
 
+    //Seconds after the start of the service day, GTFSTime.MISSING when the feed has no time
+    private Integer arrival_time;
+    private Integer departure_time;
 }
@@ -0,0 +1,27 @@
+package com.kiron.amtrakTracker.model.gtfs;
+
+public interface TimeboardStopTime {
+    /*
+    Projection of a stop time joined with its trip, route and station, everything needed for one timeboard row
+     */
+    String getTrip_id();
+
+    Integer getStop_sequence();
+
+    //Seconds after the start of the service day, GTFSTime.MISSING when the feed has no time
+    Integer getArrival_time();
+
+    Integer getDeparture_time();
+
+    String getStop_id();
+
+    Integer getNumber();
+
+    String getDestination();
+
+    String getRoute_name();
+
+    String getTime_zone();
+
+    String getAgency();
+}
@@ -1,6 +1,8 @@
 package com.kiron.amtrakTracker.model.gtfs;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import lombok.Data;
 
@@ -9,9 +11,22 @@ import lombok.Data;
 public class Trip {
 
     @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    //Id of the trip in its GTFS feed, unique across feeds
     private String trip_id;
 
+    //Id of the trip's route in its GTFS feed, and the integer id of that route which joins are made on
     private String route_id;
+    private Integer route;
+
     private Integer number;
     private String destination;
+
+    //Service of the feed's calendar the trip runs on
+    private String service_id;
+
+    //Name of the GTFSAgency this row was imported from
+    private String agency;
 }
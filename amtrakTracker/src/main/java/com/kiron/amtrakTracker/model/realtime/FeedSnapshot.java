@@ -0,0 +1,36 @@
+package com.kiron.amtrakTracker.model.realtime;
+
+import com.google.transit.realtime.GtfsRealtime.FeedMessage;
+import lombok.Getter;
+
+import java.time.Instant;
+
+@Getter
+public class FeedSnapshot {
+    /*
+    Immutable, parsed GTFS-RT feed of one agency. A new snapshot with a higher version is published every time the
+    feed changes, so readers can hold on to one without it changing underneath them
+     */
+    private final RealtimeAgency agency;
+    private final long version;
+    private final Instant fetchedAt;
+    private final FeedMessage feed;
+    private final TripUpdateIndex tripUpdates;
+
+    public FeedSnapshot(RealtimeAgency agency, long version, Instant fetchedAt, FeedMessage feed) {
+        this.agency = agency;
+        this.version = version;
+        this.fetchedAt = fetchedAt;
+        this.feed = feed;
+        this.tripUpdates = TripUpdateIndex.build(feed);
+    }
+
+    public static FeedSnapshot empty(RealtimeAgency agency) {
+        //Used before the first successful fetch of a feed
+        return new FeedSnapshot(agency, 0L, Instant.EPOCH, FeedMessage.getDefaultInstance());
+    }
+
+    public long getFeedTimestamp() {
+        return feed.hasHeader() ? feed.getHeader().getTimestamp() : 0L;
+    }
+}
@@ -0,0 +1,23 @@
+package com.kiron.amtrakTracker.model.realtime;
+
+import lombok.Getter;
+
+@Getter
+public enum RealtimeAgency {
+    /*
+    Agencies that have a GTFS-RT feed on the transitdocs backend, path is the feed name in the url
+     */
+    AMTRAK("amtrak"),
+    VIA("via");
+
+    private final String path;
+
+    RealtimeAgency(String path) {
+        this.path = path;
+    }
+
+    public static RealtimeAgency forStationCode(String code) {
+        //Amtrak station codes are 3 letters, VIA Rail codes are longer
+        return code.length() == 3 ? AMTRAK : VIA;
+    }
+}
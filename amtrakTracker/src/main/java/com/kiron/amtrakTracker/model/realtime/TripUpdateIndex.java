@@ -0,0 +1,123 @@
+package com.kiron.amtrakTracker.model.realtime;
+
+import com.google.transit.realtime.GtfsRealtime.FeedEntity;
+import com.google.transit.realtime.GtfsRealtime.FeedMessage;
+import com.google.transit.realtime.GtfsRealtime.TripUpdate;
+import com.google.transit.realtime.GtfsRealtime.TripUpdate.StopTimeUpdate;
+
+import java.util.*;
+
+public class TripUpdateIndex {
+    /*
+    Index of the TripUpdates of a GTFS-RT feed by their static GTFS trip id, built once per feed snapshot
+     */
+    private static final String AMTRAK_TRIP_PREFIX = "_AMTK_";
+
+    private final Map<String, List<TripEntry>> tripUpdates;
+
+    private TripUpdateIndex(Map<String, List<TripEntry>> tripUpdates) {
+        this.tripUpdates = tripUpdates;
+    }
+
+    public static TripUpdateIndex build(FeedMessage feed) {
+        //One trip id can have multiple entities (the same train on different days), so each id maps to a list
+        Map<String, List<TripEntry>> tripUpdates = new HashMap<>();
+        for (FeedEntity entity : feed.getEntityList()) {
+            if (!entity.hasTripUpdate() || !entity.getTripUpdate().getTrip().hasTripId()) {
+                continue;
+            }
+            TripUpdate tripUpdate = entity.getTripUpdate();
+            tripUpdates.computeIfAbsent(normalizeTripId(tripUpdate.getTrip().getTripId()), k -> new ArrayList<>(1))
+                    .add(new TripEntry(tripUpdate));
+        }
+        return new TripUpdateIndex(tripUpdates);
+    }
+
+    public static String normalizeTripId(String feedTripId) {
+        //Amtrak realtime trip ids are prefixed with the service date and agency, "<date>_AMTK_<static trip id>"
+        int prefix = feedTripId.lastIndexOf(AMTRAK_TRIP_PREFIX);
+        if (prefix < 0) {
+            return feedTripId;
+        }
+        return feedTripId.substring(prefix + AMTRAK_TRIP_PREFIX.length());
+    }
+
+    public List<TripEntry> getTripUpdates(String tripId) {
+        return tripUpdates.getOrDefault(tripId, Collections.emptyList());
+    }
+
+    public int size() {
+        return tripUpdates.size();
+    }
+
+    public static Set<String> changedTrips(TripUpdateIndex previous, TripUpdateIndex next) {
+        //Trip ids that were added, removed or whose TripUpdates differ between two snapshots
+        Set<String> changed = new HashSet<>();
+        for (Map.Entry<String, List<TripEntry>> entry : next.tripUpdates.entrySet()) {
+            List<TripEntry> before = previous == null ? null : previous.tripUpdates.get(entry.getKey());
+            if (!sameUpdates(before, entry.getValue())) {
+                changed.add(entry.getKey());
+            }
+        }
+        if (previous != null) {
+            for (String tripId : previous.tripUpdates.keySet()) {
+                if (!next.tripUpdates.containsKey(tripId)) {
+                    changed.add(tripId);
+                }
+            }
+        }
+        return changed;
+    }
+
+    private static boolean sameUpdates(List<TripEntry> before, List<TripEntry> after) {
+        //Only the trip and its stop time updates are compared, the update timestamp moves on every feed
+        if (before == null || before.size() != after.size()) {
+            return false;
+        }
+        for (int i = 0; i < after.size(); ++i) {
+            TripUpdate a = before.get(i).getTripUpdate();
+            TripUpdate b = after.get(i).getTripUpdate();
+            if (!a.getTrip().equals(b.getTrip()) || !a.getStopTimeUpdateList().equals(b.getStopTimeUpdateList())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static class TripEntry {
+        /*
+        A single TripUpdate with its stop time updates keyed by stop id and stop sequence
+         */
+        private final TripUpdate tripUpdate;
+        private final Map<String, StopTimeUpdate> byStopId;
+        private final Map<Integer, StopTimeUpdate> bySequence;
+
+        private TripEntry(TripUpdate tripUpdate) {
+            this.tripUpdate = tripUpdate;
+            this.byStopId = new HashMap<>();
+            this.bySequence = new HashMap<>();
+            for (StopTimeUpdate update : tripUpdate.getStopTimeUpdateList()) {
+                if (update.hasStopId()) {
+                    byStopId.putIfAbsent(update.getStopId(), update);
+                }
+                if (update.hasStopSequence()) {
+                    bySequence.putIfAbsent(update.getStopSequence(), update);
+                }
+            }
+        }
+
+        public TripUpdate getTripUpdate() {
+            return tripUpdate;
+        }
+
+        public StopTimeUpdate findStopTimeUpdate(String stopId, int stopSequence) {
+            //The stop sequence is used when it agrees with the stop id, since a trip can call at a stop twice,
+            //otherwise the stop id decides as realtime and static sequences do not always line up (San Joaquins)
+            StopTimeUpdate update = bySequence.get(stopSequence);
+            if (update != null && (!update.hasStopId() || update.getStopId().equals(stopId))) {
+                return update;
+            }
+            return byStopId.get(stopId);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.kiron.amtrakTracker.model.search;
+
+import lombok.Getter;
+
+@Getter
+public enum SearchField {
+    /*
+    Fields that are searchable, matches on a field with a higher weight rank first
+     */
+    STATION_CODE("code", 10),
+    STATION_NAME("name", 5),
+    STATION_ADMIN_AREA("admin_area", 0),
+    TRAIN_NUMBER("number", 10),
+    TRAIN_NAME("name", 5),
+    TRAIN_RAILROAD("railroad", 0);
+
+    private final String name;
+    private final int weight;
+
+    SearchField(String name, int weight) {
+        this.name = name;
+        this.weight = weight;
+    }
+}
@@ -0,0 +1,217 @@
+package com.kiron.amtrakTracker.model.search;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Pattern;
+
+public class SearchIndex<T> {
+    /*
+    Immutable accent-folded substring index. Every field value is folded and broken into trigrams, a query is
+    answered by intersecting the postings of its trigrams and checking the few candidates left. Queries shorter than
+    a trigram scan the folded values, which is still cheap at the size of the station and train lists
+     */
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final int GRAM = 3;
+    private static final int[] NO_ENTRIES = new int[0];
+
+    public enum MatchKind {
+        EXACT(100),
+        PREFIX(75),
+        WORD_PREFIX(50),
+        SUBSTRING(25);
+
+        private final int score;
+
+        MatchKind(int score) {
+            this.score = score;
+        }
+    }
+
+    public record Hit<T>(T document, SearchField field, MatchKind kind, int score) {
+    }
+
+    private final List<T> documents;
+    private final int[] entryDocuments;
+    private final SearchField[] entryFields;
+    private final String[] entryTexts;
+    private final Map<String, int[]> postings;
+
+    private SearchIndex(Builder<T> builder) {
+        this.documents = List.copyOf(builder.documents);
+        int size = builder.entryTexts.size();
+        this.entryDocuments = new int[size];
+        this.entryFields = builder.entryFields.toArray(new SearchField[0]);
+        this.entryTexts = builder.entryTexts.toArray(new String[0]);
+        for (int i = 0; i < size; ++i) {
+            entryDocuments[i] = builder.entryDocuments.get(i);
+        }
+
+        //Entries are added in order, so every posting list comes out sorted
+        Map<String, List<Integer>> grams = new HashMap<>();
+        for (int entry = 0; entry < size; ++entry) {
+            String text = entryTexts[entry];
+            Set<String> seen = new HashSet<>();
+            for (int i = 0; i + GRAM <= text.length(); ++i) {
+                String gram = text.substring(i, i + GRAM);
+                if (seen.add(gram)) {
+                    grams.computeIfAbsent(gram, g -> new ArrayList<>()).add(entry);
+                }
+            }
+        }
+        Map<String, int[]> postings = new HashMap<>(grams.size() * 2);
+        grams.forEach((gram, entries) -> postings.put(gram, entries.stream().mapToInt(Integer::intValue).toArray()));
+        this.postings = postings;
+    }
+
+    public static <T> SearchIndex<T> empty() {
+        return new Builder<T>().build();
+    }
+
+    public static String fold(String text) {
+        //Lower cases and strips accents, so "Montreal" finds "Montréal"
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT).trim();
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    public List<Hit<T>> search(String query, Set<SearchField> fields, int limit) {
+        //Returns the best match of each document on the given fields, best first
+        String folded = fold(query);
+        if (folded.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        Hit<T>[] best = newHits(documents.size());
+        int[] candidates = candidates(folded);
+        if (candidates == null) {
+            for (int entry = 0; entry < entryTexts.length; ++entry) {
+                match(entry, folded, fields, best);
+            }
+        } else {
+            for (int entry : candidates) {
+                match(entry, folded, fields, best);
+            }
+        }
+
+        List<Hit<T>> hits = new ArrayList<>();
+        for (Hit<T> hit : best) {
+            if (hit != null) {
+                hits.add(hit);
+            }
+        }
+        //Documents were added in display order, so the sort being stable keeps that order between equal scores
+        hits.sort(Comparator.comparingInt((Hit<T> hit) -> hit.score()).reversed());
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+
+    private int[] candidates(String query) {
+        //Intersects the postings of every trigram in the query, null means the query is too short to use them
+        if (query.length() < GRAM) {
+            return null;
+        }
+        List<int[]> lists = new ArrayList<>();
+        for (int i = 0; i + GRAM <= query.length(); ++i) {
+            int[] entries = postings.get(query.substring(i, i + GRAM));
+            if (entries == null) {
+                return NO_ENTRIES;
+            }
+            lists.add(entries);
+        }
+        lists.sort(Comparator.comparingInt(entries -> entries.length));
+
+        int[] result = lists.get(0);
+        for (int l = 1; l < lists.size() && result.length > 0; ++l) {
+            result = intersect(result, lists.get(l));
+        }
+        return result;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                ++i;
+            } else if (a[i] > b[j]) {
+                ++j;
+            } else {
+                result[n++] = a[i];
+                ++i;
+                ++j;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private void match(int entry, String query, Set<SearchField> fields, Hit<T>[] best) {
+        SearchField field = entryFields[entry];
+        if (!fields.contains(field)) {
+            return;
+        }
+        MatchKind kind = matchKind(entryTexts[entry], query);
+        if (kind == null) {
+            return;
+        }
+        int document = entryDocuments[entry];
+        int score = kind.score + field.getWeight();
+        if (best[document] == null || best[document].score() < score) {
+            best[document] = new Hit<>(documents.get(document), field, kind, score);
+        }
+    }
+
+    private static MatchKind matchKind(String text, String query) {
+        int index = text.indexOf(query);
+        if (index < 0) {
+            return null;
+        }
+        if (index == 0) {
+            return text.length() == query.length() ? MatchKind.EXACT : MatchKind.PREFIX;
+        }
+        while (index > 0) {
+            if (!Character.isLetterOrDigit(text.charAt(index - 1))) {
+                return MatchKind.WORD_PREFIX;
+            }
+            index = text.indexOf(query, index + 1);
+        }
+        return MatchKind.SUBSTRING;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Hit<T>[] newHits(int size) {
+        return (Hit<T>[]) new Hit[size];
+    }
+
+    public static class Builder<T> {
+        private final List<T> documents = new ArrayList<>();
+        private final List<Integer> entryDocuments = new ArrayList<>();
+        private final List<SearchField> entryFields = new ArrayList<>();
+        private final List<String> entryTexts = new ArrayList<>();
+
+        public Builder<T> add(T document) {
+            //Starts a new document, its searchable values are added with field
+            documents.add(document);
+            return this;
+        }
+
+        public Builder<T> field(SearchField field, String value) {
+            //Adds a searchable value to the last added document, empty values are left out
+            String folded = fold(value);
+            if (!folded.isEmpty()) {
+                entryDocuments.add(documents.size() - 1);
+                entryFields.add(field);
+                entryTexts.add(folded);
+            }
+            return this;
+        }
+
+        public SearchIndex<T> build() {
+            return new SearchIndex<>(this);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.kiron.amtrakTracker.model.search;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.kiron.amtrakTracker.model.TrainParsed;
+import com.kiron.amtrakTracker.model.gtfs.Station;
+import lombok.Data;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SearchResult {
+    /*
+    One typeahead suggestion, either a station or a train, with the field it matched on
+     */
+    private String type;
+    private String field;
+    private String match;
+    private int score;
+    private Station station;
+    private TrainParsed train;
+
+    public SearchResult(SearchIndex.Hit<?> hit) {
+        this.field = hit.field().getName();
+        this.match = hit.kind().name().toLowerCase();
+        this.score = hit.score();
+        if (hit.document() instanceof Station station) {
+            this.type = "station";
+            this.station = station;
+        } else if (hit.document() instanceof TrainParsed train) {
+            this.type = "train";
+            this.train = train;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.kiron.amtrakTracker.model.spatial;
+
+import java.util.PriorityQueue;
+import java.util.function.IntConsumer;
+
+public class KdTree {
+    /*
+    Immutable implicit k-d tree. Points are stored in flat arrays ordered so the median of every range is the node
+    splitting it, the axis cycles with depth. Ids are the indexes the points were given in
+     */
+    private final int dimensions;
+    private final int size;
+    private final double[] coordinates;
+    private final int[] ids;
+
+    private record Neighbour(int id, double distance) {
+    }
+
+    public KdTree(double[][] points) {
+        this.dimensions = points.length == 0 ? 1 : points[0].length;
+        this.size = points.length;
+        this.coordinates = new double[size * dimensions];
+        this.ids = new int[size];
+        for (int i = 0; i < size; ++i) {
+            System.arraycopy(points[i], 0, coordinates, i * dimensions, dimensions);
+            ids[i] = i;
+        }
+        build(0, size, 0);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int[] nearest(double[] point, int count) {
+        //Returns the ids of the count points closest to point by euclidean distance, closest first
+        if (count <= 0 || size == 0) {
+            return new int[0];
+        }
+        PriorityQueue<Neighbour> best = new PriorityQueue<>(count + 1, (a, b) -> a.distance() != b.distance()
+                ? Double.compare(b.distance(), a.distance())
+                : Integer.compare(b.id(), a.id()));
+        nearest(point, count, 0, size, 0, best);
+
+        int[] result = new int[best.size()];
+        for (int i = result.length - 1; i >= 0; --i) {
+            result[i] = best.poll().id();
+        }
+        return result;
+    }
+
+    public void range(double[] min, double[] max, IntConsumer consumer) {
+        //Calls consumer with the id of every point inside the box from min to max, inclusive
+        range(min, max, 0, size, 0, consumer);
+    }
+
+    private void nearest(double[] point, int count, int lo, int hi, int depth, PriorityQueue<Neighbour> best) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        int axis = depth % dimensions;
+
+        double distance = 0;
+        for (int d = 0; d < dimensions; ++d) {
+            double diff = point[d] - coordinates[mid * dimensions + d];
+            distance += diff * diff;
+        }
+        if (best.size() < count) {
+            best.add(new Neighbour(ids[mid], distance));
+        } else if (distance < best.peek().distance()) {
+            best.poll();
+            best.add(new Neighbour(ids[mid], distance));
+        }
+
+        //Search the side of the split holding the point first, the other side only if it can still be closer
+        double split = point[axis] - coordinates[mid * dimensions + axis];
+        if (split < 0) {
+            nearest(point, count, lo, mid, depth + 1, best);
+            if (best.size() < count || split * split < best.peek().distance()) {
+                nearest(point, count, mid + 1, hi, depth + 1, best);
+            }
+        } else {
+            nearest(point, count, mid + 1, hi, depth + 1, best);
+            if (best.size() < count || split * split < best.peek().distance()) {
+                nearest(point, count, lo, mid, depth + 1, best);
+            }
+        }
+    }
+
+    private void range(double[] min, double[] max, int lo, int hi, int depth, IntConsumer consumer) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        int axis = depth % dimensions;
+
+        boolean inside = true;
+        for (int d = 0; d < dimensions && inside; ++d) {
+            double value = coordinates[mid * dimensions + d];
+            inside = value >= min[d] && value <= max[d];
+        }
+        if (inside) {
+            consumer.accept(ids[mid]);
+        }
+
+        double value = coordinates[mid * dimensions + axis];
+        if (min[axis] <= value) {
+            range(min, max, lo, mid, depth + 1, consumer);
+        }
+        if (max[axis] >= value) {
+            range(min, max, mid + 1, hi, depth + 1, consumer);
+        }
+    }
+
+    private void build(int lo, int hi, int depth) {
+        //Puts the median of the range on the current axis in the middle, smaller values before it and larger after
+        if (hi - lo <= 1) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, depth % dimensions);
+        build(lo, mid, depth + 1);
+        build(mid + 1, hi, depth + 1);
+    }
+
+    private void select(int lo, int hi, int k, int axis) {
+        //Quickselect of the k-th smallest value on axis between lo and hi, inclusive
+        while (lo < hi) {
+            double pivot = coordinates[((lo + hi) >>> 1) * dimensions + axis];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (coordinates[i * dimensions + axis] < pivot) {
+                    ++i;
+                }
+                while (coordinates[j * dimensions + axis] > pivot) {
+                    --j;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int a, int b) {
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        for (int d = 0; d < dimensions; ++d) {
+            double value = coordinates[a * dimensions + d];
+            coordinates[a * dimensions + d] = coordinates[b * dimensions + d];
+            coordinates[b * dimensions + d] = value;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.kiron.amtrakTracker.model.spatial;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TrainCluster {
+    /*
+    Trains in one grid cell at a zoom level, with their centroid and the worst delay among them. The train id is only
+    set when the cluster is a single train
+     */
+    private final double latitude;
+    private final double longitude;
+    private final int count;
+    private final Integer worst_delay;
+    private final String train_id;
+
+    public TrainCluster(double latitude, double longitude, int count, Integer worst_delay, String train_id) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.count = count;
+        this.worst_delay = worst_delay;
+        this.train_id = train_id;
+    }
+}
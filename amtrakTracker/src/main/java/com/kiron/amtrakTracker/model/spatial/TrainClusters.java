@@ -0,0 +1,135 @@
+package com.kiron.amtrakTracker.model.spatial;
+
+import com.kiron.amtrakTracker.model.TrainParsed;
+
+import java.util.*;
+
+public class TrainClusters {
+    /*
+    Trains grouped into web mercator grid cells for every zoom level, built once per snapshot. A zoom level has four
+    cells per map tile on each axis, cells are kept sorted by row and column so a viewport reads a range of each row
+     */
+    public static final int MAX_ZOOM = 12;
+    private static final int CELLS_PER_TILE_SHIFT = 2;
+    private static final double MAX_LATITUDE = 85.05112878;
+
+    private final long[][] keys;
+    private final TrainCluster[][] clusters;
+
+    public TrainClusters(Collection<TrainParsed> trains) {
+        this.keys = new long[MAX_ZOOM + 1][];
+        this.clusters = new TrainCluster[MAX_ZOOM + 1][];
+
+        List<TrainParsed> positioned = new ArrayList<>();
+        for (TrainParsed train : trains) {
+            if (TrainSpatialIndex.isValid(train.getLatitude(), train.getLongitude())) {
+                positioned.add(train);
+            }
+        }
+        double[] x = new double[positioned.size()];
+        double[] y = new double[positioned.size()];
+        for (int i = 0; i < positioned.size(); ++i) {
+            x[i] = mercatorX(positioned.get(i).getLongitude());
+            y[i] = mercatorY(positioned.get(i).getLatitude());
+        }
+
+        for (int zoom = 0; zoom <= MAX_ZOOM; ++zoom) {
+            long cells = cells(zoom);
+            TreeMap<Long, List<TrainParsed>> byCell = new TreeMap<>();
+            for (int i = 0; i < positioned.size(); ++i) {
+                long key = cell(y[i], cells) * cells + cell(x[i], cells);
+                byCell.computeIfAbsent(key, k -> new ArrayList<>()).add(positioned.get(i));
+            }
+            keys[zoom] = new long[byCell.size()];
+            clusters[zoom] = new TrainCluster[byCell.size()];
+            int c = 0;
+            for (Map.Entry<Long, List<TrainParsed>> entry : byCell.entrySet()) {
+                keys[zoom][c] = entry.getKey();
+                clusters[zoom][c] = cluster(entry.getValue());
+                ++c;
+            }
+        }
+    }
+
+    public List<TrainCluster> getClusters(int zoom) {
+        //All clusters at a zoom level
+        return List.of(clusters[clampZoom(zoom)]);
+    }
+
+    public List<TrainCluster> getClusters(int zoom, double south, double west, double north, double east) {
+        //Clusters in cells overlapping the viewport, a viewport with west greater than east crosses the antimeridian
+        int z = clampZoom(zoom);
+        long cells = cells(z);
+        long top = cell(mercatorY(north), cells);
+        long bottom = cell(mercatorY(south), cells);
+        long left = cell(mercatorX(west), cells);
+        long right = cell(mercatorX(east), cells);
+
+        List<TrainCluster> result = new ArrayList<>();
+        for (long row = top; row <= bottom; ++row) {
+            if (left <= right) {
+                addRange(z, row * cells + left, row * cells + right, result);
+            } else {
+                addRange(z, row * cells + left, row * cells + cells - 1, result);
+                addRange(z, row * cells, row * cells + right, result);
+            }
+        }
+        return result;
+    }
+
+    private void addRange(int zoom, long from, long to, List<TrainCluster> result) {
+        long[] zoomKeys = keys[zoom];
+        int i = Arrays.binarySearch(zoomKeys, from);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        for (; i < zoomKeys.length && zoomKeys[i] <= to; ++i) {
+            result.add(clusters[zoom][i]);
+        }
+    }
+
+    private static TrainCluster cluster(List<TrainParsed> trains) {
+        //Centroid of the trains on the unit sphere, so clusters spanning the antimeridian stay in place
+        double sx = 0, sy = 0, sz = 0;
+        Integer worstDelay = null;
+        for (TrainParsed train : trains) {
+            double lat = Math.toRadians(train.getLatitude());
+            double lng = Math.toRadians(train.getLongitude());
+            sx += Math.cos(lat) * Math.cos(lng);
+            sy += Math.cos(lat) * Math.sin(lng);
+            sz += Math.sin(lat);
+            Integer delay = train.getNext_station_delay();
+            if (delay != null && (worstDelay == null || delay > worstDelay)) {
+                worstDelay = delay;
+            }
+        }
+        if (trains.size() == 1) {
+            TrainParsed train = trains.get(0);
+            return new TrainCluster(train.getLatitude(), train.getLongitude(), 1, worstDelay, train.getId());
+        }
+        double latitude = Math.toDegrees(Math.atan2(sz, Math.hypot(sx, sy)));
+        double longitude = Math.toDegrees(Math.atan2(sy, sx));
+        return new TrainCluster(latitude, longitude, trains.size(), worstDelay, null);
+    }
+
+    private static int clampZoom(int zoom) {
+        return Math.max(0, Math.min(zoom, MAX_ZOOM));
+    }
+
+    private static long cells(int zoom) {
+        return 1L << (zoom + CELLS_PER_TILE_SHIFT);
+    }
+
+    private static long cell(double coordinate, long cells) {
+        return Math.min(cells - 1, Math.max(0, (long) Math.floor(coordinate * cells)));
+    }
+
+    private static double mercatorX(double longitude) {
+        return (longitude + 180) / 360;
+    }
+
+    private static double mercatorY(double latitude) {
+        double lat = Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude)));
+        return (1 - Math.log(Math.tan(lat) + 1 / Math.cos(lat)) / Math.PI) / 2;
+    }
+}
@@ -0,0 +1,73 @@
+package com.kiron.amtrakTracker.model.spatial;
+
+import com.kiron.amtrakTracker.model.TrainParsed;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class TrainSpatialIndex {
+    /*
+    Positions of the trains in one snapshot. Nearest trains are found on a tree of points on the unit sphere, where
+    straight line distance orders trains the same as great-circle distance. Viewports are answered from a second
+    tree over latitude and longitude. Trains without a position are left out
+     */
+    private final List<TrainParsed> trains;
+    private final KdTree sphere;
+    private final KdTree map;
+
+    public TrainSpatialIndex(Collection<TrainParsed> trains) {
+        List<TrainParsed> positioned = new ArrayList<>();
+        for (TrainParsed train : trains) {
+            if (isValid(train.getLatitude(), train.getLongitude())) {
+                positioned.add(train);
+            }
+        }
+        double[][] spherePoints = new double[positioned.size()][];
+        double[][] mapPoints = new double[positioned.size()][];
+        for (int i = 0; i < positioned.size(); ++i) {
+            TrainParsed train = positioned.get(i);
+            spherePoints[i] = toSphere(train.getLatitude(), train.getLongitude());
+            mapPoints[i] = new double[]{train.getLatitude(), train.getLongitude()};
+        }
+        this.trains = positioned;
+        this.sphere = new KdTree(spherePoints);
+        this.map = new KdTree(mapPoints);
+    }
+
+    public int size() {
+        return trains.size();
+    }
+
+    public List<TrainParsed> nearest(double latitude, double longitude, int count) {
+        //Returns up to count trains closest to the point by great-circle distance, closest first
+        List<TrainParsed> result = new ArrayList<>();
+        for (int id : sphere.nearest(toSphere(latitude, longitude), count)) {
+            result.add(trains.get(id));
+        }
+        return result;
+    }
+
+    public List<TrainParsed> within(double south, double west, double north, double east) {
+        //Returns trains inside the box, a box with west greater than east crosses the antimeridian
+        List<TrainParsed> result = new ArrayList<>();
+        if (west <= east) {
+            map.range(new double[]{south, west}, new double[]{north, east}, id -> result.add(trains.get(id)));
+        } else {
+            map.range(new double[]{south, west}, new double[]{north, 180}, id -> result.add(trains.get(id)));
+            map.range(new double[]{south, -180}, new double[]{north, east}, id -> result.add(trains.get(id)));
+        }
+        return result;
+    }
+
+    public static boolean isValid(Double latitude, Double longitude) {
+        return latitude != null && longitude != null && latitude >= -90 && latitude <= 90
+                && longitude >= -180 && longitude <= 180;
+    }
+
+    private static double[] toSphere(double latitude, double longitude) {
+        double lat = Math.toRadians(latitude);
+        double lng = Math.toRadians(longitude);
+        return new double[]{Math.cos(lat) * Math.cos(lng), Math.cos(lat) * Math.sin(lng), Math.sin(lat)};
+    }
+}
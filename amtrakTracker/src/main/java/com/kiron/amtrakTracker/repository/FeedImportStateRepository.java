@@ -0,0 +1,9 @@
+package com.kiron.amtrakTracker.repository;
+
+import com.kiron.amtrakTracker.model.gtfs.FeedImportState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface FeedImportStateRepository extends JpaRepository<FeedImportState, String> {
+}
@@ -0,0 +1,8 @@
+package com.kiron.amtrakTracker.repository;
+
+import com.kiron.amtrakTracker.model.gtfs.ServiceCalendarDate;
+import com.kiron.amtrakTracker.model.gtfs.ServiceCalendarDateId;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ServiceCalendarDateRepository extends JpaRepository<ServiceCalendarDate, ServiceCalendarDateId> {
+}
@@ -0,0 +1,8 @@
+package com.kiron.amtrakTracker.repository;
+
+import com.kiron.amtrakTracker.model.gtfs.ServiceCalendar;
+import com.kiron.amtrakTracker.model.gtfs.ServiceCalendarId;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ServiceCalendarRepository extends JpaRepository<ServiceCalendar, ServiceCalendarId> {
+}
@@ -0,0 +1,7 @@
+package com.kiron.amtrakTracker.repository;
+
+import com.kiron.amtrakTracker.model.gtfs.Stop;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface StopRepository extends JpaRepository<Stop, Integer> {
+}
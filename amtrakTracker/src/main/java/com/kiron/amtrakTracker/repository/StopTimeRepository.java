@@ -1,6 +1,8 @@
 package com.kiron.amtrakTracker.repository;
 
+import com.kiron.amtrakTracker.model.gtfs.StopTimeId;
 import com.kiron.amtrakTracker.model.gtfs.StopTimes;
+import com.kiron.amtrakTracker.model.gtfs.TimeboardStopTime;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -9,9 +11,17 @@ import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 
 @Repository
-public interface StopTimeRepository extends JpaRepository<StopTimes, Long> {
+public interface StopTimeRepository extends JpaRepository<StopTimes, StopTimeId> {
 
+    //Finds the stop by its unique id and then range scans the (stop, departure_time) index, trips and routes are
+    //joined on their integer ids
     @Transactional
-    @Query("select st from StopTimes st where st.stop_id = ?1")
-    List<StopTimes> findAllByStop_Id(String id);
+    @Query("select t.trip_id as trip_id, st.stop_sequence as stop_sequence, st.arrival_time as arrival_time, " +
+            "st.departure_time as departure_time, p.stop_id as stop_id, t.number as number, " +
+            "t.destination as destination, r.route_name as route_name, s.time_zone as time_zone, " +
+            "t.agency as agency " +
+            "from StopTimes st join Stop p on p.id = st.stop join Trip t on t.id = st.trip " +
+            "join Route r on r.id = t.route left join Station s on s.id = p.stop_id " +
+            "where p.stop_id = ?1 order by st.departure_time")
+    List<TimeboardStopTime> findTimeboardByStop_Id(String id);
 }
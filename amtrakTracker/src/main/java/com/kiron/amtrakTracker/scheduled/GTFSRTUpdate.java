@@ -0,0 +1,19 @@
+package com.kiron.amtrakTracker.scheduled;
+
+import com.kiron.amtrakTracker.service.FeedSnapshotService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class GTFSRTUpdate {
+
+    @Autowired
+    private FeedSnapshotService feedSnapshotService;
+
+    @Scheduled(fixedRate = 30000)
+    public void updateFeeds() {
+        //Refreshes the shared GTFS-RT snapshots used by station timeboards every 30 seconds
+        feedSnapshotService.refreshFeeds();
+    }
+}
@@ -1,9 +1,12 @@
 package com.kiron.amtrakTracker.scheduled;
 
+import com.kiron.amtrakTracker.service.ScheduleService;
 import com.kiron.amtrakTracker.service.StationService;
 import com.opencsv.exceptions.CsvValidationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
@@ -17,13 +20,25 @@ public class StationGTFSUpdate {
     @Autowired
     private StationService stationService;
 
-    @Scheduled(fixedDelay = 7, timeUnit = TimeUnit.DAYS)
+    @Autowired
+    private ScheduleService scheduleService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadSchedule() {
+        //Loads the in memory schedule from the database on startup, so it is available before the first import ends
+        scheduleService.rebuild();
+    }
+
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.HOURS)
     public void updateStation() {
-        //Updates all stations every 7 days
+        //Checks for new station GTFS every hour, feeds that did not change are not downloaded or imported again
 
         try {
-            stationService.updateGTFS();
-            log.info("Updated Station GTFS");
+            if (stationService.updateGTFS()) {
+                log.info("Updated Station GTFS");
+            } else {
+                log.info("Skipped station GTFS update, an update is already running");
+            }
         } catch (IOException | CsvValidationException e) {
             log.error("Error updating station GTFS due to error:", e);
         }
@@ -3,23 +3,27 @@ package com.kiron.amtrakTracker.scheduled;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.kiron.amtrakTracker.model.TrainApiModel;
 import com.kiron.amtrakTracker.model.TrainParsed;
-import com.kiron.amtrakTracker.model.gtfs.Station;
-import com.kiron.amtrakTracker.service.StationService;
+import com.kiron.amtrakTracker.model.gtfs.StationCatalog;
+import com.kiron.amtrakTracker.repository.StationRepository;
+import com.kiron.amtrakTracker.service.PayloadRecorder;
+import com.kiron.amtrakTracker.service.ScheduleService;
 import com.kiron.amtrakTracker.service.TrainService;
+import com.kiron.amtrakTracker.service.UpstreamMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
-import java.util.NoSuchElementException;
+import java.util.ArrayList;
+import java.util.List;
 
 @Component
 @Slf4j
@@ -29,45 +33,90 @@ public class TrainAPIUpdate {
     private TrainService trainService;
 
     @Autowired
-    private StationService stationService;
+    private ScheduleService scheduleService;
+
+    @Autowired
+    private StationRepository stationRepository;
+
+    @Autowired
+    private UpstreamMetrics upstreamMetrics;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PayloadRecorder payloadRecorder;
+
+    @Value("${upstream.map-url:https://asm-backend.transitdocs.com/map}")
+    private String mapUrl;
 
     @Scheduled(fixedRate = 120000)
     public void updateTrains() {
         //Updates all trains currently running at a fixed rate of every 2 minutes
         try {
-            URL trainUrl = new URI("https://asm-backend.transitdocs.com/map").toURL();
-            ObjectMapper mapper = new ObjectMapper();
-            TrainApiModel[] trains = mapper.readValue(trainUrl, TrainApiModel[].class);
+            refreshTrains();
+        } catch (IOException | URISyntaxException e) {
+            log.error("Error updating train information due to error:", e);
+        }
+    }
 
-            trainService.setAllInactive();
+    public List<TrainParsed> refreshTrains() throws IOException, URISyntaxException {
+        //Fetches the trains from the map api and publishes the ones with a known next station, returns every train
+        //fetched, also used by the update endpoint so there is one path to the upstream
+        URL trainUrl = new URI(mapUrl).toURL();
+        byte[] body;
+        long fetchStart = System.nanoTime();
+        try (InputStream inputStream = trainUrl.openStream()) {
+            body = inputStream.readAllBytes();
+        } catch (IOException e) {
+            upstreamMetrics.recordFetch(UpstreamMetrics.MAP, "all", fetchStart, UpstreamMetrics.ERROR);
+            throw e;
+        }
+        upstreamMetrics.recordFetch(UpstreamMetrics.MAP, "all", fetchStart, body.length);
+        payloadRecorder.record(PayloadRecorder.MAP, "json", body);
 
-            for (TrainApiModel train : trains) {
-                TrainParsed parsedTrain = new TrainParsed(train);
+        //The body is read whole before parsing, so parse time does not include waiting on the api
+        Timer.Sample parse = Timer.start(meterRegistry);
+        ObjectMapper mapper = new ObjectMapper();
+        TrainApiModel[] trains = mapper.readValue(body, TrainApiModel[].class);
 
-                //Get the next station, we need this to set the correct arrival time
-                Station station;
-                try {
-                    station = stationService.getStationByCode(parsedTrain.getNext_station()).iterator().next();
-                } catch (NoSuchElementException e) {
-                    continue;
-                }
+        StationCatalog catalog = stationCatalog();
+        List<TrainParsed> allTrains = new ArrayList<>();
+        List<TrainParsed> parsedTrains = new ArrayList<>();
+        for (TrainApiModel train : trains) {
+            TrainParsed parsedTrain = new TrainParsed(train);
+            allTrains.add(parsedTrain);
 
+            //Get the next station, we need this to set the correct arrival time
+            StationCatalog.Entry station = catalog.getByCode(parsedTrain.getNext_station());
+            if (station == null) {
+                continue;
+            }
 
-                //Set the correct time for arrival
-                Instant instant = Instant.ofEpochSecond(parsedTrain.getArrival_epoch());
-                ZoneId zone = ZoneId.of(station.getTime_zone());
-                LocalDateTime localDateTime = instant.atZone(zone).toLocalDateTime();
-                DateTimeFormatter formatter = DateTimeFormatter.ofPattern("hh:mm a");
-                parsedTrain.setScheduled_arrival(formatter.format(localDateTime));
 
-                trainService.addTrain(parsedTrain);
+            //Set the correct time for arrival
+            if (parsedTrain.getArrival_epoch() != null) {
+                parsedTrain.setScheduled_arrival(station.formatTime(parsedTrain.getArrival_epoch()));
             }
 
-            trainService.deleteInactiveTrains();
-            log.info("Updated Trains, there are " + trains.length + " trains");
-        } catch (IOException | URISyntaxException e) {
-            log.error("Error updating train information due to error:", e);
+            parsedTrains.add(parsedTrain);
+        }
+        parse.stop(meterRegistry.timer("train.update.parse"));
+
+        //Publishing covers the registry, search index and stream, the database write is timed when it runs
+        meterRegistry.timer("train.update.publish").record(() -> trainService.replaceTrains(parsedTrains));
+        log.info("Updated Trains, there are " + trains.length + " trains");
+        return allTrains;
+    }
+
+    private StationCatalog stationCatalog() {
+        //The schedule's catalog is empty until its first rebuild finishes, refreshes that run before then read the
+        //stations from the database so they do not publish, and store, a snapshot without any trains
+        StationCatalog catalog = scheduleService.getStationCatalog();
+        if (catalog.isEmpty()) {
+            catalog = new StationCatalog(0L, stationRepository.findAll());
         }
+        return catalog;
     }
 
 }
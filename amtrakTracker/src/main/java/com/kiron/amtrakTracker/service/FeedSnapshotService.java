@@ -0,0 +1,11 @@
+package com.kiron.amtrakTracker.service;
+
+import com.kiron.amtrakTracker.model.realtime.FeedSnapshot;
+import com.kiron.amtrakTracker.model.realtime.RealtimeAgency;
+
+public interface FeedSnapshotService {
+
+    FeedSnapshot getSnapshot(RealtimeAgency agency);
+
+    void refreshFeeds();
+}
@@ -0,0 +1,96 @@
+package com.kiron.amtrakTracker.service;
+
+import com.google.transit.realtime.GtfsRealtime.FeedMessage;
+import com.kiron.amtrakTracker.model.realtime.FeedSnapshot;
+import com.kiron.amtrakTracker.model.realtime.RealtimeAgency;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+@Service
+public class FeedSnapshotServiceImp implements FeedSnapshotService {
+
+    @Value("${upstream.gtfs-rt-url:https://asm-backend.transitdocs.com/gtfs/}")
+    private String feedUrl;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private UpstreamMetrics upstreamMetrics;
+
+    @Autowired
+    private PayloadRecorder payloadRecorder;
+
+    private final Map<RealtimeAgency, FeedSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+
+    public FeedSnapshotServiceImp() {
+        for (RealtimeAgency agency : RealtimeAgency.values()) {
+            snapshots.put(agency, FeedSnapshot.empty(agency));
+        }
+    }
+
+    @Override
+    public FeedSnapshot getSnapshot(RealtimeAgency agency) {
+        return snapshots.get(agency);
+    }
+
+    @Override
+    public void refreshFeeds() {
+        //Fetches every agency feed, a failed fetch keeps the last good snapshot for that agency
+        for (RealtimeAgency agency : RealtimeAgency.values()) {
+            try {
+                refreshFeed(agency);
+            } catch (IOException | URISyntaxException e) {
+                log.error("Error refreshing GTFS-RT feed {} due to error:", agency.getPath(), e);
+            }
+        }
+    }
+
+    private void refreshFeed(RealtimeAgency agency) throws IOException, URISyntaxException {
+        HttpURLConnection conn = (HttpURLConnection) new URI(feedUrl + agency.getPath()).toURL().openConnection();
+        conn.setRequestMethod("GET");
+        conn.setConnectTimeout(5000);
+        conn.setReadTimeout(10000);
+
+        //Read whole before parsing, so the fetch time and size are those of the feed alone
+        byte[] body;
+        long fetchStart = System.nanoTime();
+        try (InputStream inputStream = conn.getInputStream()) {
+            body = inputStream.readAllBytes();
+        } catch (IOException e) {
+            upstreamMetrics.recordFetch(UpstreamMetrics.GTFS_RT, agency.getPath(), fetchStart, UpstreamMetrics.ERROR);
+            throw e;
+        }
+        upstreamMetrics.recordFetch(UpstreamMetrics.GTFS_RT, agency.getPath(), fetchStart, body.length);
+        payloadRecorder.record(PayloadRecorder.GTFS_RT + agency.getPath(), "pb", body);
+        FeedMessage feed = FeedMessage.parseFrom(body);
+
+        //The feed is only republished when its header timestamp moves, so unchanged feeds keep their version
+        FeedSnapshot current = snapshots.get(agency);
+        if (current.getVersion() > 0 && feed.hasHeader()
+                && feed.getHeader().getTimestamp() == current.getFeedTimestamp()) {
+            return;
+        }
+
+        FeedSnapshot snapshot = new FeedSnapshot(agency, version.incrementAndGet(), Instant.now(), feed);
+        snapshots.put(agency, snapshot);
+        eventPublisher.publishEvent(snapshot);
+        log.info("Updated GTFS-RT feed {} to version {}, there are {} entities", agency.getPath(),
+                snapshot.getVersion(), feed.getEntityCount());
+    }
+}
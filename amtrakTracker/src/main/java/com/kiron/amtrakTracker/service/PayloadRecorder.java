@@ -0,0 +1,74 @@
+package com.kiron.amtrakTracker.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+@Slf4j
+@Component
+public class PayloadRecorder {
+    /*
+    Archives the payloads fetched from the upstream apis when upstream.record.dir is set, so they can be replayed
+    offline by the replay server of the benchmarks module. Every payload is written to <dir>/<feed>/<epoch millis>
+    with the payload's extension, feeds being map, gtfs-rt/<agency> and gtfs/<agency>. Recording never fails a fetch,
+    a payload that cannot be written is only logged
+     */
+    public static final String MAP = "map";
+    public static final String GTFS_RT = "gtfs-rt/";
+    public static final String GTFS = "gtfs/";
+
+    @Value("${upstream.record.dir:}")
+    private String recordDir;
+
+    public boolean isRecording() {
+        return recordDir != null && !recordDir.isEmpty();
+    }
+
+    public void record(String feed, String extension, byte[] payload) {
+        record(feed, extension, temp -> Files.write(temp, payload));
+    }
+
+    public void record(String feed, String extension, Path payload) {
+        //Copies a payload that was downloaded to a file, like a static GTFS zip
+        record(feed, extension, temp -> Files.copy(payload, temp, StandardCopyOption.REPLACE_EXISTING));
+    }
+
+    private void record(String feed, String extension, PayloadWriter writer) {
+        //Writes a payload fetched now through a temporary file, so a replay never reads half of one
+        if (!isRecording()) {
+            return;
+        }
+        try {
+            Path dir = Files.createDirectories(Path.of(recordDir, feed));
+            Path temp = Files.createTempFile(dir, "recording", ".tmp");
+            try {
+                writer.write(temp);
+                move(temp, dir, System.currentTimeMillis(), extension);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            log.warn("Could not record {} payload to {} due to error:", feed, recordDir, e);
+        }
+    }
+
+    private synchronized void move(Path temp, Path dir, long timestamp, String extension) throws IOException {
+        //Payloads of a feed fetched in the same millisecond get a numbered name, <epoch millis>.<n>.<extension>,
+        //instead of replacing each other
+        Path target = dir.resolve(timestamp + "." + extension);
+        for (int n = 1; Files.exists(target); n++) {
+            target = dir.resolve(timestamp + "." + n + "." + extension);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @FunctionalInterface
+    private interface PayloadWriter {
+        void write(Path temp) throws IOException;
+    }
+}
@@ -0,0 +1,64 @@
+package com.kiron.amtrakTracker.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+@Component
+public class ResponseCache {
+    /*
+    Serialized responses of versioned data. A key names the data and its version, so the body of a key never
+    changes and is serialized once, and the key doubles as a strong ETag. Spring answers a matching If-None-Match
+    with 304 for any response built here. A response can also carry its version in the body, for clients that
+    pass it back instead of reading the ETag
+     */
+    private static final int MAX_ENTRIES = 256;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Map<String, String> bodies = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    public ResponseEntity<String> get(String key, Supplier<Object> data) throws JsonProcessingException {
+        return get(key, null, data);
+    }
+
+    public ResponseEntity<String> get(String key, Long version, Supplier<Object> data)
+            throws JsonProcessingException {
+        //Returns the cached response for key, building it from data the first time
+        String body;
+        synchronized (bodies) {
+            body = bodies.get(key);
+        }
+        if (body == null) {
+            Map<String, Object> response = new HashMap<String, Object>();
+            response.put("status", 200);
+            if (version != null) {
+                response.put("version", version);
+            }
+            response.put("data", data.get());
+            body = objectMapper.writeValueAsString(response);
+            synchronized (bodies) {
+                bodies.put(key, body);
+            }
+        }
+        return ResponseEntity.status(HttpStatus.OK)
+                .eTag("\"" + key + "\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+}
@@ -0,0 +1,13 @@
+package com.kiron.amtrakTracker.service;
+
+import com.kiron.amtrakTracker.model.gtfs.ScheduleStore;
+import com.kiron.amtrakTracker.model.gtfs.StationCatalog;
+
+public interface ScheduleService {
+
+    ScheduleStore getStore();
+
+    StationCatalog getStationCatalog();
+
+    void rebuild();
+}
@@ -0,0 +1,133 @@
+package com.kiron.amtrakTracker.service;
+
+import com.kiron.amtrakTracker.model.gtfs.ScheduleStore;
+import com.kiron.amtrakTracker.model.gtfs.Station;
+import com.kiron.amtrakTracker.model.gtfs.StationCatalog;
+import com.kiron.amtrakTracker.model.gtfs.Stop;
+import com.kiron.amtrakTracker.model.gtfs.Trip;
+import com.kiron.amtrakTracker.repository.RouteRepository;
+import com.kiron.amtrakTracker.repository.ServiceCalendarDateRepository;
+import com.kiron.amtrakTracker.repository.ServiceCalendarRepository;
+import com.kiron.amtrakTracker.repository.StationRepository;
+import com.kiron.amtrakTracker.repository.StopRepository;
+import com.kiron.amtrakTracker.repository.TripRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Service
+public class ScheduleServiceImp implements ScheduleService {
+
+    @Autowired
+    private StationRepository stationRepository;
+    @Autowired
+    private RouteRepository routeRepository;
+    @Autowired
+    private TripRepository tripRepository;
+    @Autowired
+    private StopRepository stopRepository;
+    @Autowired
+    private ServiceCalendarRepository serviceCalendarRepository;
+    @Autowired
+    private ServiceCalendarDateRepository serviceCalendarDateRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private volatile ScheduleStore store = ScheduleStore.empty();
+    private volatile StationCatalog stationCatalog = StationCatalog.empty();
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Override
+    public ScheduleStore getStore() {
+        return store;
+    }
+
+    @Override
+    public StationCatalog getStationCatalog() {
+        return stationCatalog;
+    }
+
+    @Override
+    public synchronized void rebuild() {
+        //Reads the static schedule and stations from the database into a new store and station catalog, which replace
+        //the current ones in one step. The read runs in its own transaction, which is closed before listeners of the
+        //new store run, so rebuilding the views does not hold a pooled connection
+        long start = System.currentTimeMillis();
+        ScheduleStore.Builder builder = new ScheduleStore.Builder();
+        List<Station> stations = readOnlyTransaction.execute(status -> load(builder));
+
+        //Like train versions, catalog versions are at least the load time so they keep increasing across restarts
+        stationCatalog = new StationCatalog(Math.max(stationCatalog.getVersion() + 1, System.currentTimeMillis()),
+                stations);
+        searchService.indexStations(stations);
+        store = builder.build();
+        log.info("Rebuilt schedule store with {} stop times in {} ms", store.getStopTimeCount(),
+                System.currentTimeMillis() - start);
+
+        //Views built from the schedule, like the station timeboards, rebuild from the new store
+        eventPublisher.publishEvent(store);
+    }
+
+    private List<Station> load(ScheduleStore.Builder builder) {
+        //Adds the schedule to the builder and returns the stations
+        List<Station> stations = stationRepository.findAll();
+        stations.forEach(builder::addStation);
+        routeRepository.findAll().forEach(builder::addRoute);
+        Map<Integer, String> tripIds = new HashMap<>();
+        for (Trip trip : tripRepository.findAll()) {
+            builder.addTrip(trip);
+            tripIds.put(trip.getId(), trip.getTrip_id());
+        }
+        Map<Integer, String> stopIds = new HashMap<>();
+        for (Stop stop : stopRepository.findAll()) {
+            stopIds.put(stop.getId(), stop.getStop_id());
+        }
+        serviceCalendarRepository.findAll().forEach(builder::addCalendar);
+        serviceCalendarDateRepository.findAll().forEach(builder::addCalendarDate);
+
+        //Stop times are streamed straight into the builder's columns instead of being loaded as entities, their
+        //integer trip and stop ids are resolved here rather than joined in the query
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "select trip, stop_sequence, arrival_time, departure_time, stop from stop_times");
+            ps.setFetchSize(10000);
+            return ps;
+        }, rs -> {
+            String tripId = tripIds.get(rs.getInt(1));
+            String stopId = stopIds.get(rs.getInt(5));
+            if (tripId != null && stopId != null) {
+                builder.addStopTime(tripId, rs.getInt(2), rs.getInt(3), rs.getInt(4), stopId);
+            }
+        });
+
+        return stations;
+    }
+}
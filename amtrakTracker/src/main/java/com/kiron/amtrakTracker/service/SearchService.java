@@ -0,0 +1,22 @@
+package com.kiron.amtrakTracker.service;
+
+import com.kiron.amtrakTracker.model.TrainParsed;
+import com.kiron.amtrakTracker.model.TrainSnapshot;
+import com.kiron.amtrakTracker.model.gtfs.Station;
+import com.kiron.amtrakTracker.model.search.SearchResult;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface SearchService {
+
+    void indexStations(Collection<Station> stations);
+
+    void indexTrains(TrainSnapshot snapshot);
+
+    List<Station> searchStations(String query);
+
+    List<TrainParsed> searchTrains(String query);
+
+    List<SearchResult> typeahead(String query, int limit);
+}
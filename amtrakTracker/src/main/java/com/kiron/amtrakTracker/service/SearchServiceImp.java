@@ -0,0 +1,108 @@
+package com.kiron.amtrakTracker.service;
+
+import com.kiron.amtrakTracker.model.TrainParsed;
+import com.kiron.amtrakTracker.model.TrainSnapshot;
+import com.kiron.amtrakTracker.model.gtfs.Station;
+import com.kiron.amtrakTracker.model.search.SearchField;
+import com.kiron.amtrakTracker.model.search.SearchIndex;
+import com.kiron.amtrakTracker.model.search.SearchResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+@Slf4j
+@Service
+public class SearchServiceImp implements SearchService {
+
+    private static final Set<SearchField> STATION_FIELDS = EnumSet.of(SearchField.STATION_CODE,
+            SearchField.STATION_NAME);
+    private static final Set<SearchField> ALL_STATION_FIELDS = EnumSet.of(SearchField.STATION_CODE,
+            SearchField.STATION_NAME, SearchField.STATION_ADMIN_AREA);
+    private static final Set<SearchField> ALL_TRAIN_FIELDS = EnumSet.of(SearchField.TRAIN_NUMBER,
+            SearchField.TRAIN_NAME, SearchField.TRAIN_RAILROAD);
+
+    private volatile SearchIndex<Station> stationIndex = SearchIndex.empty();
+    private volatile SearchIndex<TrainParsed> trainIndex = SearchIndex.empty();
+    private long trainVersion = -1;
+
+    @Override
+    public void indexStations(Collection<Station> stations) {
+        //Rebuilds the station index, stations are added by name so equal matches come back in alphabetical order
+        List<Station> sorted = new ArrayList<>(stations);
+        sorted.sort(Comparator.comparing(Station::getName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)));
+
+        SearchIndex.Builder<Station> builder = new SearchIndex.Builder<>();
+        for (Station station : sorted) {
+            builder.add(station)
+                    .field(SearchField.STATION_CODE, station.getCode())
+                    .field(SearchField.STATION_NAME, station.getName())
+                    .field(SearchField.STATION_ADMIN_AREA, station.getAdmin_area());
+        }
+        stationIndex = builder.build();
+        log.info("Indexed " + stationIndex.size() + " stations for search");
+    }
+
+    @Override
+    public synchronized void indexTrains(TrainSnapshot snapshot) {
+        //Rebuilds the train index, unless a newer snapshot was already indexed
+        if (snapshot.getVersion() <= trainVersion) {
+            return;
+        }
+        SearchIndex.Builder<TrainParsed> builder = new SearchIndex.Builder<>();
+        for (TrainParsed train : snapshot.getTrains()) {
+            builder.add(train)
+                    .field(SearchField.TRAIN_NUMBER, train.getNumber() == null ? null : train.getNumber().toString())
+                    .field(SearchField.TRAIN_NAME, train.getName())
+                    .field(SearchField.TRAIN_RAILROAD, train.getRailroad());
+        }
+        trainIndex = builder.build();
+        trainVersion = snapshot.getVersion();
+    }
+
+    @Override
+    public List<Station> searchStations(String query) {
+        //Stations whose code or name contains the query
+        return documents(stationIndex.search(query, STATION_FIELDS, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public List<TrainParsed> searchTrains(String query) {
+        //Trains whose name contains the query or whose number is the query, the railroad is only searched when
+        //neither of those match anything. A train matching both is only returned once
+        SearchIndex<TrainParsed> index = trainIndex;
+        Set<TrainParsed> trains = new LinkedHashSet<>(documents(index.search(query,
+                EnumSet.of(SearchField.TRAIN_NAME), Integer.MAX_VALUE)));
+        index.search(query, EnumSet.of(SearchField.TRAIN_NUMBER), Integer.MAX_VALUE).stream()
+                .filter(hit -> hit.kind() == SearchIndex.MatchKind.EXACT)
+                .forEach(hit -> trains.add(hit.document()));
+
+        if (trains.isEmpty()) {
+            return documents(index.search(query, EnumSet.of(SearchField.TRAIN_RAILROAD), Integer.MAX_VALUE));
+        }
+        return new ArrayList<>(trains);
+    }
+
+    @Override
+    public List<SearchResult> typeahead(String query, int limit) {
+        //Best matches over every station and train field, ranked together
+        List<SearchIndex.Hit<?>> hits = new ArrayList<>();
+        hits.addAll(stationIndex.search(query, ALL_STATION_FIELDS, limit));
+        hits.addAll(trainIndex.search(query, ALL_TRAIN_FIELDS, limit));
+        hits.sort(Comparator.comparingInt((SearchIndex.Hit<?> hit) -> hit.score()).reversed());
+
+        List<SearchResult> results = new ArrayList<>();
+        for (int i = 0; i < hits.size() && i < limit; ++i) {
+            results.add(new SearchResult(hits.get(i)));
+        }
+        return results;
+    }
+
+    private static <T> List<T> documents(List<SearchIndex.Hit<T>> hits) {
+        List<T> documents = new ArrayList<>(hits.size());
+        for (SearchIndex.Hit<T> hit : hits) {
+            documents.add(hit.document());
+        }
+        return documents;
+    }
+}
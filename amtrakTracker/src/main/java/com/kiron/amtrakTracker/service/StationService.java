@@ -6,17 +6,12 @@ import com.opencsv.exceptions.CsvValidationException;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.Set;
 
 public interface StationService {
 
-    public StationTimeboard getTrainsAtStation(String code) throws IOException;
+    public StationTimeboard getTrainsAtStation(String code);
 
-    void updateGTFS() throws IOException, CsvValidationException;
-
-    Set<Station> getStationByCode(String query);
-
-    Set<Station> getStationByName(String query);
+    boolean updateGTFS() throws IOException, CsvValidationException;
 
     List<Station> getAllStations();
 
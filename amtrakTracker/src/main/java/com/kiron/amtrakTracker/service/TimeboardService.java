@@ -0,0 +1,10 @@
+package com.kiron.amtrakTracker.service;
+
+import com.kiron.amtrakTracker.model.StationTimeboard;
+
+public interface TimeboardService {
+
+    StationTimeboard getTimeboard(String code);
+
+    void rebuildTimeboards();
+}
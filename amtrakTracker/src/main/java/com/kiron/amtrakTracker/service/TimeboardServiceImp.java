@@ -0,0 +1,260 @@
+package com.kiron.amtrakTracker.service;
+
+import com.google.transit.realtime.GtfsRealtime.TripUpdate.StopTimeUpdate;
+import com.kiron.amtrakTracker.model.StationTimeboard;
+import com.kiron.amtrakTracker.model.TimeboardRow;
+import com.kiron.amtrakTracker.model.gtfs.GTFSTime;
+import com.kiron.amtrakTracker.model.gtfs.ScheduleStore;
+import com.kiron.amtrakTracker.model.gtfs.Station;
+import com.kiron.amtrakTracker.model.gtfs.StationCatalog;
+import com.kiron.amtrakTracker.model.gtfs.TimeboardStopTime;
+import com.kiron.amtrakTracker.model.realtime.FeedSnapshot;
+import com.kiron.amtrakTracker.model.realtime.RealtimeAgency;
+import com.kiron.amtrakTracker.model.realtime.TripUpdateIndex;
+import com.kiron.amtrakTracker.repository.StationRepository;
+import com.kiron.amtrakTracker.repository.StopTimeRepository;
+import com.kiron.amtrakTracker.service.gtfs.GTFSAgency;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+@Service
+public class TimeboardServiceImp implements TimeboardService {
+    /*
+    Keeps the timeboard of every station materialized. A new GTFS-RT snapshot only rebuilds the stations served by
+    trips whose TripUpdates changed, everything is rebuilt when the schedule is reloaded or the day changes, since
+    only trips running from yesterday to tomorrow are considered and rows without realtime times are dated today
+     */
+    private static final ZoneId SERVICE_ZONE = ZoneId.of("America/New_York");
+
+    @Autowired
+    private FeedSnapshotService feedSnapshotService;
+
+    @Autowired
+    private ScheduleService scheduleService;
+
+    @Autowired
+    private StationRepository stationRepository;
+
+    @Autowired
+    private StopTimeRepository stopTimeRepository;
+
+    private volatile Map<String, StationTimeboard> timeboards = new ConcurrentHashMap<>();
+
+    //What the materialized timeboards were built from, the day is that of the service zone
+    private final Map<RealtimeAgency, TripUpdateIndex> appliedTripUpdates = new EnumMap<>(RealtimeAgency.class);
+    private volatile ScheduleStore appliedStore;
+    private LocalDate appliedDay;
+
+    private final AtomicLong versions = new AtomicLong(System.currentTimeMillis());
+
+    @Override
+    public StationTimeboard getTimeboard(String code) {
+        //Reads the materialized timeboard, stations are only built on request before the schedule is loaded
+        StationTimeboard timeboard = timeboards.get(code);
+        if (timeboard != null || appliedStore != null) {
+            return timeboard;
+        }
+
+        Station station = stationRepository.findByCode(code);
+        if (station == null) {
+            return null;
+        }
+        TripUpdateIndex tripUpdates = feedSnapshotService.getSnapshot(RealtimeAgency.forStationCode(code))
+                .getTripUpdates();
+        //Built per request, so it has no version to cache it under
+        StationTimeboard built = buildTimeboard(station, tripUpdates, scheduleService.getStore());
+        built.setVersion(0);
+        return built;
+    }
+
+    @Override
+    @EventListener(ScheduleStore.class)
+    public synchronized void rebuildTimeboards() {
+        //Builds the timeboard of every station in the catalog from the current schedule and feeds
+        ScheduleStore store = scheduleService.getStore();
+        StationCatalog catalog = scheduleService.getStationCatalog();
+        if (store.isEmpty() || catalog.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+
+        Map<RealtimeAgency, TripUpdateIndex> tripUpdates = new EnumMap<>(RealtimeAgency.class);
+        for (RealtimeAgency agency : RealtimeAgency.values()) {
+            tripUpdates.put(agency, feedSnapshotService.getSnapshot(agency).getTripUpdates());
+        }
+
+        Map<String, StationTimeboard> built = new ConcurrentHashMap<>();
+        for (StationCatalog.Entry entry : catalog.getEntries()) {
+            Station station = entry.getStation();
+            if (station.getCode() == null) {
+                continue;
+            }
+            try {
+                built.put(station.getCode(), buildTimeboard(station,
+                        tripUpdates.get(RealtimeAgency.forStationCode(station.getCode())), store));
+            } catch (RuntimeException e) {
+                log.error("Error building timeboard for station {} due to error:", station.getCode(), e);
+            }
+        }
+
+        timeboards = built;
+        appliedTripUpdates.putAll(tripUpdates);
+        appliedStore = store;
+        appliedDay = today();
+        log.info("Built {} station timeboards in {} ms", built.size(), System.currentTimeMillis() - start);
+    }
+
+    @EventListener(FeedSnapshot.class)
+    public synchronized void onFeedSnapshot(FeedSnapshot snapshot) {
+        //Rebuilds the timeboards of stations served by trips whose TripUpdates changed in the new snapshot
+        ScheduleStore store = scheduleService.getStore();
+        if (store != appliedStore || !today().equals(appliedDay)) {
+            rebuildTimeboards();
+            return;
+        }
+
+        RealtimeAgency agency = snapshot.getAgency();
+        TripUpdateIndex previous = appliedTripUpdates.get(agency);
+        TripUpdateIndex tripUpdates = snapshot.getTripUpdates();
+        Set<String> changedTrips = TripUpdateIndex.changedTrips(previous, tripUpdates);
+
+        StationCatalog catalog = scheduleService.getStationCatalog();
+        Map<String, Station> stations = new HashMap<>();
+        for (String tripId : changedTrips) {
+            for (String stopId : store.getStopIdsOfTrip(tripId)) {
+                StationCatalog.Entry entry = catalog.getById(stopId);
+                if (entry != null && entry.getStation().getCode() != null
+                        && RealtimeAgency.forStationCode(entry.getStation().getCode()) == agency) {
+                    stations.put(entry.getStation().getCode(), entry.getStation());
+                }
+            }
+        }
+
+        for (Station station : stations.values()) {
+            try {
+                timeboards.put(station.getCode(), buildTimeboard(station, tripUpdates, store));
+            } catch (RuntimeException e) {
+                log.error("Error building timeboard for station {} due to error:", station.getCode(), e);
+            }
+        }
+        appliedTripUpdates.put(agency, tripUpdates);
+        log.info("Feed {} changed {} trips, rebuilt {} station timeboards", agency.getPath(), changedTrips.size(),
+                stations.size());
+    }
+
+    private static LocalDate today() {
+        return LocalDate.now(SERVICE_ZONE);
+    }
+
+    StationTimeboard buildTimeboard(Station station, TripUpdateIndex tripUpdates, ScheduleStore schedule) {
+        //Builds the full timeboard of a station from its scheduled stop times and the realtime updates, package
+        //private so the benchmarks can build a single station
+        StationTimeboard timeboard = new StationTimeboard(station.getCode(), station.getName(), station.getWebsite(),
+                station.getAdmin_area());
+        timeboard.setVersion(versions.incrementAndGet());
+        ZoneId zone = StationCatalog.resolveZone(station.getTime_zone());
+
+        //Stop times come from the in memory schedule, limited to the trips whose calendars have them at the station
+        //around today. The joined database query is only used before it is loaded
+        LocalDate today = today();
+        List<TimeboardStopTime> allStops = schedule.isEmpty()
+                ? stopTimeRepository.findTimeboardByStop_Id(station.getId())
+                : schedule.getStopTimes(station.getId(), today.minusDays(1), today.plusDays(1));
+
+        for (TimeboardStopTime stopTime : allStops) {
+            buildRow(tripUpdates, stopTime, zone, schedule, timeboard);
+        }
+
+        timeboard.sortTimeboard();
+        return timeboard;
+    }
+
+    private void buildRow(TripUpdateIndex tripUpdates, TimeboardStopTime stopTime, ZoneId zone,
+                          ScheduleStore schedule, StationTimeboard timeboard) {
+        //Builds the rows of a stop time in the station timeboard, being the train and its arrival and departure
+        //times. Times stay epoch seconds, they are formatted in the station's zone when the timeboard is served
+
+        //One trip id can have multiple trip updates (different days), each of them gets its own row
+        for (TripUpdateIndex.TripEntry entry : tripUpdates.getTripUpdates(stopTime.getTrip_id())) {
+            //There are a few cases where the stop is not in the trip update (Empire Builder from PDX at CHI for
+            //instance)
+            StopTimeUpdate update = entry.findStopTimeUpdate(stopTime.getStop_id(), stopTime.getStop_sequence());
+            if (update == null) {
+                continue;
+            }
+
+            TimeboardRow row = new TimeboardRow();
+            row.setZone(zone);
+            row.setLate_arrival(false);
+            row.setLate_departure(false);
+            row.setNumber(stopTime.getNumber());
+            row.setDestination(stopTime.getDestination());
+            row.setName(stopTime.getRoute_name());
+
+            if (update.hasArrival()) {
+                row.setActual_time(update.getArrival().getTime());
+                row.setArrival_epoch(update.getArrival().getTime());
+                if (update.getArrival().getDelay() > 0) {
+                    row.setLate_arrival(true);
+                }
+            }
+            if (update.hasDeparture()) {
+                if (row.getActual_time() == null) {
+                    row.setActual_time(update.getDeparture().getTime());
+                }
+                row.setDeparture_epoch(update.getDeparture().getTime());
+                if (update.getDeparture().getDelay() > 0) {
+                    row.setLate_departure(true);
+                }
+            }
+
+            //Schedule times count from the start of the trip's service day in the agency's zone
+            ZoneId agencyZone = GTFSAgency.zoneOf(stopTime.getAgency());
+            LocalDate serviceDate = serviceDate(entry, stopTime, row.getActual_time(), agencyZone);
+            if (!schedule.isRunning(stopTime.getTrip_id(), serviceDate)) {
+                //The update matched a trip id whose calendar does not run that day
+                continue;
+            }
+            long dayStart = GTFSTime.serviceDayStart(serviceDate, agencyZone);
+            row.setService_date(serviceDate);
+            if (stopTime.getArrival_time() != null && stopTime.getArrival_time() >= 0) {
+                row.setScheduled_arrival_epoch(dayStart + stopTime.getArrival_time());
+            }
+            if (stopTime.getDeparture_time() != null && stopTime.getDeparture_time() >= 0) {
+                row.setScheduled_departure_epoch(dayStart + stopTime.getDeparture_time());
+            }
+            timeboard.addRow(row);
+        }
+    }
+
+    private static LocalDate serviceDate(TripUpdateIndex.TripEntry entry, TimeboardStopTime stopTime, Long actualTime,
+                                         ZoneId agencyZone) {
+        //The trip's start date when the feed sends one, otherwise it is worked back from the realtime time. If there
+        //is no arrival or departure, it is most likely a rescheduled train (1xxx), so we will assume its date is today
+        String startDate = entry.getTripUpdate().getTrip().getStartDate();
+        if (!startDate.isEmpty()) {
+            try {
+                return LocalDate.parse(startDate, DateTimeFormatter.BASIC_ISO_DATE);
+            } catch (DateTimeParseException e) {
+                log.debug("Ignoring start date {} of trip {}", startDate, stopTime.getTrip_id());
+            }
+        }
+        Integer scheduled = stopTime.getArrival_time() != null && stopTime.getArrival_time() >= 0
+                ? stopTime.getArrival_time() : stopTime.getDeparture_time();
+        if (actualTime != null && scheduled != null && scheduled >= 0) {
+            return GTFSTime.serviceDate(actualTime, scheduled, agencyZone);
+        }
+        return LocalDate.now(agencyZone);
+    }
+}
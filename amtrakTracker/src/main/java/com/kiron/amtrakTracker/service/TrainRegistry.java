@@ -0,0 +1,74 @@
+package com.kiron.amtrakTracker.service;
+
+import com.kiron.amtrakTracker.model.TrainDelta;
+import com.kiron.amtrakTracker.model.TrainParsed;
+import com.kiron.amtrakTracker.model.TrainSnapshot;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+public class TrainRegistry {
+    /*
+    Holds the current snapshot of running trains. Readers get the latest published snapshot without locking, the
+    snapshot itself never changes after it is published. Versions are at least the publish time in milliseconds, so
+    they keep increasing across restarts and a version a client kept from an earlier run never names another snapshot
+     */
+    private static final int HISTORY_SIZE = 30;
+
+    private volatile TrainSnapshot snapshot = TrainSnapshot.empty();
+
+    //Recent snapshots by version, used to answer what changed since a version a client already has
+    private final Map<Long, TrainSnapshot> history = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, TrainSnapshot> eldest) {
+            return size() > HISTORY_SIZE;
+        }
+    };
+
+    public TrainSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public synchronized TrainSnapshot publish(Collection<TrainParsed> trains) {
+        Instant now = Instant.now();
+        long version = Math.max(snapshot.getVersion() + 1, now.toEpochMilli());
+        snapshot = new TrainSnapshot(version, now, trains, snapshot);
+        history.put(version, snapshot);
+        return snapshot;
+    }
+
+    public synchronized void publishInitial(Collection<TrainParsed> trains) {
+        //Publishes trains restored from storage, only if nothing was published yet
+        if (snapshot.getVersion() == 0) {
+            publish(trains);
+        }
+    }
+
+    public synchronized long getDeltaBase(long version, TrainSnapshot current) {
+        //The version a delta to current is computed from, the client's version while it is current or still kept,
+        //otherwise 0 for a delta with every train. Keys of cached deltas are built from it, so a client sending
+        //arbitrary versions can only reach the few deltas the history allows
+        if (version == current.getVersion() || (version < current.getVersion() && history.containsKey(version))) {
+            return version;
+        }
+        return 0L;
+    }
+
+    public synchronized TrainDelta getChangesSince(long version, TrainSnapshot current) {
+        //Changes from an earlier version to current. When that version is too old to be kept, the delta is from
+        //version 0 and has every train, so the client replaces what it has
+        if (version == current.getVersion()) {
+            return new TrainDelta(version, version, Collections.emptyList(), Collections.emptyList());
+        }
+        TrainSnapshot from = version < current.getVersion() ? history.get(version) : null;
+        if (from == null) {
+            return TrainDelta.between(0L, Collections.emptyMap(), current.getVersion(), current.getTrainsById());
+        }
+        return TrainDelta.between(version, from.getTrainsById(), current.getVersion(), current.getTrainsById());
+    }
+}
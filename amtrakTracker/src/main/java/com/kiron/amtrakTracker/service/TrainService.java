@@ -1,6 +1,8 @@
 package com.kiron.amtrakTracker.service;
 
+import com.kiron.amtrakTracker.model.TrainDelta;
 import com.kiron.amtrakTracker.model.TrainParsed;
+import com.kiron.amtrakTracker.model.TrainSnapshot;
 
 import java.util.List;
 
@@ -8,15 +10,11 @@ public interface TrainService {
 
     public TrainParsed addTrain(TrainParsed train);
 
-    public List<TrainParsed> getAllTrains();
+    TrainSnapshot getSnapshot();
 
-    List<TrainParsed> getTrainsByName(String query);
+    long getDeltaBase(long version, TrainSnapshot current);
 
-    List<TrainParsed> getTrainsByNumber(Integer i);
+    TrainDelta getChangesSince(long version, TrainSnapshot current);
 
-    void setAllInactive();
-
-    void deleteInactiveTrains();
-
-    List<TrainParsed> getTrainsByRailroad(String query);
+    void replaceTrains(List<TrainParsed> trains);
 }
@@ -1,54 +1,178 @@
 package com.kiron.amtrakTracker.service;
 
+import com.kiron.amtrakTracker.model.TrainDelta;
 import com.kiron.amtrakTracker.model.TrainParsed;
+import com.kiron.amtrakTracker.model.TrainSnapshot;
 import com.kiron.amtrakTracker.repository.TrainRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.List;
+import java.sql.PreparedStatement;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 public class TrainServiceImp implements TrainService {
 
+    private static final String UPSERT_TRAIN = "insert into train_parsed (id, number, name, railroad, destination, " +
+            "latitude, longitude, speed, last_station, last_station_delay, next_station, next_station_delay, " +
+            "scheduled_arrival, arrival_epoch, is_active) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "on conflict (id) do update set number = excluded.number, name = excluded.name, " +
+            "railroad = excluded.railroad, destination = excluded.destination, latitude = excluded.latitude, " +
+            "longitude = excluded.longitude, speed = excluded.speed, last_station = excluded.last_station, " +
+            "last_station_delay = excluded.last_station_delay, next_station = excluded.next_station, " +
+            "next_station_delay = excluded.next_station_delay, scheduled_arrival = excluded.scheduled_arrival, " +
+            "arrival_epoch = excluded.arrival_epoch, is_active = excluded.is_active";
+
     @Autowired
     private TrainRepository trainRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TrainRegistry trainRegistry;
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private TrainStreamService trainStreamService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    //Trains as they were last written, used to only write the trains that changed
+    private volatile Map<String, TrainParsed> savedTrains = new HashMap<>();
+
+    //Latest snapshot waiting to be written, refreshes that come in while a write is running replace it
+    private final AtomicReference<Collection<TrainParsed>> pendingWrite = new AtomicReference<>();
+    private final ExecutorService writeBehind = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("train-write-behind").daemon().factory());
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadTrains() {
+        //Restores the last stored trains on startup, unless a refresh already published newer ones
+        try {
+            List<TrainParsed> stored = trainRepository.findAll();
+            trainRegistry.publishInitial(stored);
+            searchService.indexTrains(trainRegistry.getSnapshot());
+            trainStreamService.broadcast(trainRegistry.getSnapshot());
+            savedTrains = stored.stream().collect(Collectors.toMap(TrainParsed::getId, train -> train, (a, b) -> b));
+        } catch (RuntimeException e) {
+            log.error("Error loading stored trains due to error:", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        writeBehind.shutdown();
+        writeBehind.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
     @Override
     public TrainParsed addTrain(TrainParsed train) {
         return trainRepository.save(train);
     }
 
     @Override
-    public List<TrainParsed> getAllTrains() {
-        return trainRepository.findAll();
+    public TrainSnapshot getSnapshot() {
+        return trainRegistry.getSnapshot();
     }
 
     @Override
-    public List<TrainParsed> getTrainsByName(String query) {
-        return trainRepository.findByNameContainsIgnoreCase(query);
+    public long getDeltaBase(long version, TrainSnapshot current) {
+        return trainRegistry.getDeltaBase(version, current);
     }
 
     @Override
-    public List<TrainParsed> getTrainsByNumber(Integer i) {
-        return trainRepository.findByNumber(i);
+    public TrainDelta getChangesSince(long version, TrainSnapshot current) {
+        return trainRegistry.getChangesSince(version, current);
     }
 
     @Override
-    public void setAllInactive() {
-        List<TrainParsed> allTrains = trainRepository.findAll();
-        for (TrainParsed train : allTrains) {
-            train.setIs_active(false);
+    public void replaceTrains(List<TrainParsed> trains) {
+        //Publishes the new trains for readers right away, the database is updated in the background
+        TrainSnapshot snapshot = trainRegistry.publish(trains);
+        searchService.indexTrains(snapshot);
+        trainStreamService.broadcast(snapshot);
+        if (pendingWrite.getAndSet(trains) == null) {
+            writeBehind.execute(this::writePendingTrains);
         }
-        trainRepository.saveAll(allTrains);
     }
 
-    @Override
-    public void deleteInactiveTrains() {
-        trainRepository.deleteByIs_active(false);
+    private void writePendingTrains() {
+        Collection<TrainParsed> trains = pendingWrite.getAndSet(null);
+        if (trains == null) {
+            return;
+        }
+        Timer.Sample write = Timer.start(meterRegistry);
+        String outcome = "success";
+        try {
+            saveTrains(trains);
+        } catch (RuntimeException e) {
+            //The stored state is unknown after a failed write, so the next one writes every train
+            savedTrains = new HashMap<>();
+            outcome = "error";
+            log.error("Error saving trains due to error:", e);
+        }
+        write.stop(meterRegistry.timer("train.update.write", "outcome", outcome));
     }
 
-    @Override
-    public List<TrainParsed> getTrainsByRailroad(String query) {
-        return trainRepository.findByRailroadContainsIgnoreCase(query);
+    private void saveTrains(Collection<TrainParsed> trains) {
+        //Replaces the stored trains with a new snapshot in one transaction, trains that changed are upserted in one
+        //jdbc batch and trains that are no longer running are removed with a single delete
+        Map<String, TrainParsed> snapshot = new HashMap<>();
+        for (TrainParsed train : trains) {
+            snapshot.put(train.getId(), train);
+        }
+        List<TrainParsed> changed = snapshot.values().stream()
+                .filter(train -> !train.equals(savedTrains.get(train.getId())))
+                .toList();
+        String[] ids = snapshot.keySet().toArray(new String[0]);
+
+        Integer removed = transactionTemplate.execute(status -> {
+            jdbcTemplate.batchUpdate(UPSERT_TRAIN, changed, 500, (ps, train) -> {
+                ps.setString(1, train.getId());
+                ps.setObject(2, train.getNumber());
+                ps.setString(3, train.getName());
+                ps.setString(4, train.getRailroad());
+                ps.setString(5, train.getDestination());
+                ps.setObject(6, train.getLatitude());
+                ps.setObject(7, train.getLongitude());
+                ps.setObject(8, train.getSpeed());
+                ps.setString(9, train.getLast_station());
+                ps.setObject(10, train.getLast_station_delay());
+                ps.setString(11, train.getNext_station());
+                ps.setObject(12, train.getNext_station_delay());
+                ps.setString(13, train.getScheduled_arrival());
+                ps.setObject(14, train.getArrival_epoch());
+                ps.setObject(15, train.getIs_active());
+            });
+            return jdbcTemplate.update(con -> {
+                PreparedStatement ps = con.prepareStatement("delete from train_parsed where id <> all(?)");
+                ps.setArray(1, con.createArrayOf("varchar", ids));
+                return ps;
+            });
+        });
+
+        savedTrains = snapshot;
+        log.info("Saved trains, {} changed and {} removed", changed.size(), removed);
     }
 }
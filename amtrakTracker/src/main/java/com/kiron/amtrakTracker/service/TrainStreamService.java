@@ -0,0 +1,13 @@
+package com.kiron.amtrakTracker.service;
+
+import com.kiron.amtrakTracker.model.TrainSnapshot;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface TrainStreamService {
+
+    SseEmitter subscribe();
+
+    void broadcast(TrainSnapshot snapshot);
+
+    int getClientCount();
+}
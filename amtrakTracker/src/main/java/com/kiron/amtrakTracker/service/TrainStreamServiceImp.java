@@ -0,0 +1,209 @@
+package com.kiron.amtrakTracker.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kiron.amtrakTracker.model.TrainDelta;
+import com.kiron.amtrakTracker.model.TrainSnapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+
+@Slf4j
+@Service
+public class TrainStreamServiceImp implements TrainStreamService {
+    /*
+    Pushes train snapshots and deltas to server-sent event clients. Each event is serialized once and the same bytes
+    are queued for every client, a sender thread per client writes its queue so one slow client never holds up the
+    others. A client whose queue fills up gets its queue replaced by a full snapshot, and is dropped if it falls
+    behind again before that snapshot is sent
+     */
+    private static final Set<DataWithMediaType> CLOSE = Collections.unmodifiableSet(new HashSet<>());
+
+    @Autowired
+    private TrainRegistry trainRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${train.stream.buffer-size:16}")
+    private int bufferSize;
+
+    @Value("${train.stream.timeout-ms:1800000}")
+    private long timeout;
+
+    private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+
+    //Last version sent to the clients, and the snapshot event of the latest version, built once for every client
+    private long broadcastVersion = -1;
+    private volatile SnapshotEvent snapshotEvent;
+
+    private record SnapshotEvent(long version, Set<DataWithMediaType> event) {
+    }
+
+    @Override
+    public synchronized SseEmitter subscribe() {
+        //Registers a new client, which starts with the current snapshot. This holds the broadcast lock, so the client
+        //gets every delta after its snapshot
+        SseEmitter emitter = newEmitter();
+        Client client = new Client(emitter, bufferSize);
+        emitter.onCompletion(client::close);
+        emitter.onTimeout(client::close);
+        emitter.onError(e -> client.close());
+
+        client.queue.offer(snapshotEvent(trainRegistry.getSnapshot()));
+        clients.add(client);
+        client.start();
+        return emitter;
+    }
+
+    @Override
+    public synchronized void broadcast(TrainSnapshot snapshot) {
+        //Sends what changed in this snapshot to every client. Clients get the full snapshot instead when versions
+        //were skipped, which happens when two refreshes publish at the same time
+        if (snapshot.getVersion() <= broadcastVersion) {
+            return;
+        }
+        TrainDelta delta = snapshot.getDelta();
+        boolean resync = delta.getFrom_version() != broadcastVersion;
+        broadcastVersion = snapshot.getVersion();
+        if (clients.isEmpty() || (!resync && delta.isEmpty())) {
+            return;
+        }
+
+        Set<DataWithMediaType> event = resync ? snapshotEvent(snapshot) : serialize("delta", snapshot.getVersion(), delta);
+        if (event == null) {
+            return;
+        }
+        for (Client client : clients) {
+            if (resync) {
+                client.resync(event);
+            } else if (!client.queue.offer(event)) {
+                client.resync(snapshotEvent(snapshot));
+            }
+        }
+    }
+
+    SseEmitter newEmitter() {
+        //Package private so tests can stand in a client that reads slowly
+        return new SseEmitter(timeout);
+    }
+
+    @Override
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    @EventListener(ContextClosedEvent.class)
+    public void shutdown() {
+        //Ends every stream before the web server shuts down, open streams would otherwise hold up its graceful shutdown
+        for (Client client : clients) {
+            client.emitter.complete();
+            client.close();
+        }
+    }
+
+    private Set<DataWithMediaType> snapshotEvent(TrainSnapshot snapshot) {
+        //Serializes the snapshot once per version, later clients reuse the same event
+        SnapshotEvent current = snapshotEvent;
+        if (current != null && current.version() == snapshot.getVersion()) {
+            return current.event();
+        }
+        Map<String, Object> data = new HashMap<String, Object>();
+        data.put("version", snapshot.getVersion());
+        data.put("trains", snapshot.getTrains());
+        Set<DataWithMediaType> event = serialize("snapshot", snapshot.getVersion(), data);
+        if (event != null && (current == null || current.version() < snapshot.getVersion())) {
+            snapshotEvent = new SnapshotEvent(snapshot.getVersion(), event);
+        }
+        return event;
+    }
+
+    private Set<DataWithMediaType> serialize(String name, long version, Object data) {
+        try {
+            return SseEmitter.event()
+                    .name(name)
+                    .id(Long.toString(version))
+                    .data(objectMapper.writeValueAsString(data), MediaType.APPLICATION_JSON)
+                    .build();
+        } catch (JsonProcessingException e) {
+            log.error("Error serializing train {} event due to error:", name, e);
+            return null;
+        }
+    }
+
+    private class Client {
+        private final SseEmitter emitter;
+        private final BlockingQueue<Set<DataWithMediaType>> queue;
+        private volatile boolean resyncing;
+        private Thread sender;
+
+        private Client(SseEmitter emitter, int bufferSize) {
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        private void start() {
+            sender = Thread.ofVirtual().name("train-stream").start(this::send);
+        }
+
+        private void send() {
+            //Writes queued events until the client goes away
+            try {
+                while (true) {
+                    Set<DataWithMediaType> event = queue.take();
+                    if (event == CLOSE) {
+                        return;
+                    }
+                    resyncing = false;
+                    emitter.send(event);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | IllegalStateException e) {
+                //The client disconnected
+                emitter.completeWithError(e);
+            } finally {
+                clients.remove(this);
+            }
+        }
+
+        private void resync(Set<DataWithMediaType> snapshot) {
+            //Replaces everything queued with a full snapshot, a client that is still behind from the last resync is
+            //dropped
+            if (resyncing) {
+                log.info("Dropping slow train stream client");
+                emitter.complete();
+                close();
+                return;
+            }
+            resyncing = true;
+            queue.clear();
+            queue.offer(snapshot);
+        }
+
+        private void close() {
+            clients.remove(this);
+            queue.clear();
+            if (!queue.offer(CLOSE) && sender != null) {
+                sender.interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.kiron.amtrakTracker.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class UpstreamMetrics {
+    /*
+    Latency and size of every fetch from the upstream apis: the /map train api, each GTFS-RT feed and each static
+    GTFS zip. Upstream is the kind of source and feed which one of them, the outcome tells successful fetches from
+    failed or not modified ones, and only successful fetches record their size
+     */
+    public static final String MAP = "map";
+    public static final String GTFS_RT = "gtfs_rt";
+    public static final String GTFS = "gtfs";
+
+    public static final String SUCCESS = "success";
+    public static final String NOT_MODIFIED = "not_modified";
+    public static final String ERROR = "error";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    public void recordFetch(String upstream, String feed, long startNanos, String outcome) {
+        //Records a fetch that started at startNanos, from System.nanoTime
+        Timer.builder("upstream.fetch")
+                .description("Time to fetch from an upstream api")
+                .tag("upstream", upstream)
+                .tag("feed", feed)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordFetch(String upstream, String feed, long startNanos, long bytes) {
+        //Records a successful fetch and the bytes it read
+        recordFetch(upstream, feed, startNanos, SUCCESS);
+        DistributionSummary.builder("upstream.fetch.bytes")
+                .description("Size of a payload fetched from an upstream api")
+                .baseUnit("bytes")
+                .tag("upstream", upstream)
+                .tag("feed", feed)
+                .register(meterRegistry)
+                .record(bytes);
+    }
+}
@@ -0,0 +1,38 @@
+package com.kiron.amtrakTracker.service.gtfs;
+
+import lombok.Getter;
+
+import java.time.ZoneId;
+
+@Getter
+public enum GTFSAgency {
+    /*
+    Agencies with a static GTFS feed, in the order their routes and trips are merged, later agencies win on equal ids
+     */
+    AMTRAK("Amtrak", "https://content.amtrak.com/content/gtfs/GTFS.zip", "America/New_York"),
+    VIA("VIA Rail", "https://www.viarail.ca/sites/all/files/gtfs/viarail.zip", "America/Toronto"),
+    SAN_JOAQUINS("San Joaquins", "https://d34tiw64n5z4oh.cloudfront.net/wp-content/uploads/SJJPA_03182025-1.zip",
+            "America/Los_Angeles");
+
+    private final String displayName;
+    private final String url;
+
+    //Zone of the feed's agency.txt, the schedule times of the feed are in it
+    private final ZoneId timeZone;
+
+    GTFSAgency(String displayName, String url, String timeZone) {
+        this.displayName = displayName;
+        this.url = url;
+        this.timeZone = ZoneId.of(timeZone);
+    }
+
+    public static ZoneId zoneOf(String name) {
+        //Zone of the agency a row was imported from, rows from before agencies were recorded are Amtrak's
+        for (GTFSAgency agency : values()) {
+            if (agency.name().equals(name)) {
+                return agency.timeZone;
+            }
+        }
+        return AMTRAK.timeZone;
+    }
+}
@@ -0,0 +1,65 @@
+package com.kiron.amtrakTracker.service.gtfs;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+@Slf4j
+public class GTFSBatchWriter<T> implements AutoCloseable {
+    /*
+    Buffers parsed GTFS rows and hands them to the database in fixed size batches, so an import only ever holds one
+    batch per file in memory no matter how large the feed is
+     */
+    private final String name;
+    private final int batchSize;
+    private final Consumer<List<T>> flusher;
+    private final List<T> batch;
+    private final long start;
+    private long rows;
+    private long flushNanos;
+
+    public GTFSBatchWriter(String name, int batchSize, Consumer<List<T>> flusher) {
+        this.name = name;
+        this.batchSize = batchSize;
+        this.flusher = flusher;
+        this.batch = new ArrayList<>(batchSize);
+        this.start = System.nanoTime();
+    }
+
+    public void write(T row) {
+        batch.add(row);
+        if (batch.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    public void flush() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long flushStart = System.nanoTime();
+        flusher.accept(batch);
+        flushNanos += System.nanoTime() - flushStart;
+        rows += batch.size();
+        batch.clear();
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getFlushNanos() {
+        //Time spent handing batches to the flusher
+        return flushNanos;
+    }
+
+    @Override
+    public void close() {
+        flush();
+        double seconds = Math.max((System.nanoTime() - start) / 1e9, 0.001);
+        log.info("Finished updating {} GTFS, wrote {} rows in {} s ({} rows/s)", name, rows,
+                String.format("%.1f", seconds), Math.round(rows / seconds));
+    }
+}
@@ -0,0 +1,273 @@
+package com.kiron.amtrakTracker.service.gtfs;
+
+import com.kiron.amtrakTracker.model.gtfs.Route;
+import com.kiron.amtrakTracker.model.gtfs.ServiceCalendar;
+import com.kiron.amtrakTracker.model.gtfs.ServiceCalendarDate;
+import com.kiron.amtrakTracker.model.gtfs.Trip;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+@Slf4j
+@Component
+public class GTFSCopyLoader {
+    /*
+    Bulk loads static GTFS rows with the Postgres COPY protocol. Rows are copied into unlogged staging tables while
+    an import runs, then moved into the live tables per agency in a single transaction, so readers either see the
+    old schedule or the new one. Routes and trips are updated in place on their GTFS ids, so their integer ids, which
+    stop times reference, stay the same across imports
+     */
+    private static final String STOP_TIME_COLUMNS = "agency, trip_id, stop_sequence, arrival_time, departure_time, " +
+            "stop_id";
+    private static final String TRIP_COLUMNS = "agency, trip_id, route_id, number, destination, service_id";
+    private static final String ROUTE_COLUMNS = "agency, route_id, route_name";
+    private static final String CALENDAR_COLUMNS = "agency, service_id, monday, tuesday, wednesday, thursday, " +
+            "friday, saturday, sunday, start_date, end_date";
+    private static final String CALENDAR_DATE_COLUMNS = "agency, service_id, date, exception_type";
+    //Key of the Postgres advisory lock imports hold, arbitrary but shared by every instance
+    private static final long IMPORT_LOCK_KEY = 0x47544653L;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    public ImportLock lockImport() {
+        //Takes the import's advisory lock, waiting for an import of another instance sharing the database. The lock
+        //is held by its own connection until it is closed, since the import spreads over pooled connections
+        Connection conn = null;
+        try {
+            conn = dataSource.getConnection();
+            try (Statement statement = conn.createStatement()) {
+                statement.execute("select pg_advisory_lock(" + IMPORT_LOCK_KEY + ")");
+            }
+            return new ImportLock(conn);
+        } catch (SQLException e) {
+            closeQuietly(conn);
+            throw new IllegalStateException("Could not lock the GTFS import", e);
+        }
+    }
+
+    public void prepareStaging() {
+        //Empties the staging tables before every import, they are created by the schema migrations
+        jdbcTemplate.execute("truncate stop_times_staging, trip_staging, route_staging, service_calendar_staging, " +
+                "service_calendar_date_staging");
+    }
+
+    public void copyStopTimes(GTFSAgency agency, List<GTFSStopTime> stopTimes) {
+        copy("stop_times_staging", STOP_TIME_COLUMNS, agency, stopTimes, st -> new Object[]{
+                st.getTrip_id(), st.getStop_sequence(), st.getArrival_time(), st.getDeparture_time(), st.getStop_id()});
+    }
+
+    public void copyTrips(GTFSAgency agency, List<Trip> trips) {
+        copy("trip_staging", TRIP_COLUMNS, agency, trips, t -> new Object[]{
+                t.getTrip_id(), t.getRoute_id(), t.getNumber(), t.getDestination(), t.getService_id()});
+    }
+
+    public void copyRoutes(GTFSAgency agency, List<Route> routes) {
+        copy("route_staging", ROUTE_COLUMNS, agency, routes, r -> new Object[]{r.getRoute_id(), r.getRoute_name()});
+    }
+
+    public void copyCalendars(GTFSAgency agency, List<ServiceCalendar> calendars) {
+        copy("service_calendar_staging", CALENDAR_COLUMNS, agency, calendars, c -> new Object[]{
+                c.getService_id(), c.getMonday(), c.getTuesday(), c.getWednesday(), c.getThursday(), c.getFriday(),
+                c.getSaturday(), c.getSunday(), c.getStart_date(), c.getEnd_date()});
+    }
+
+    public void copyCalendarDates(GTFSAgency agency, List<ServiceCalendarDate> calendarDates) {
+        copy("service_calendar_date_staging", CALENDAR_DATE_COLUMNS, agency, calendarDates, c -> new Object[]{
+                c.getService_id(), c.getDate(), c.getException_type()});
+    }
+
+    @Transactional
+    public void publish(Map<GTFSAgency, Set<String>> loadedFiles) {
+        //Replaces the live rows of every loaded agency and file with the staged rows, files that were not loaded
+        //keep their rows. Agencies are applied in enum order and an id that appears in two agencies ends up with the
+        //later one, within a file the last row of an id wins
+        if (loadedFiles.values().stream().allMatch(Set::isEmpty)) {
+            return;
+        }
+        boolean tripsRemoved = jdbcTemplate.update("delete from trip where agency is null") > 0;
+        jdbcTemplate.update("delete from route where agency is null");
+        boolean routesOrTripsChanged = false;
+
+        for (GTFSAgency agency : GTFSAgency.values()) {
+            Set<String> files = loadedFiles.getOrDefault(agency, Collections.emptySet());
+            String name = agency.name();
+            if (files.contains("routes.txt")) {
+                publishRoutes(name);
+                routesOrTripsChanged = true;
+            }
+            if (files.contains("trips.txt")) {
+                tripsRemoved |= publishTrips(name);
+                routesOrTripsChanged = true;
+            }
+            if (files.contains("calendar.txt")) {
+                publishCalendars(name);
+            }
+            if (files.contains("calendar_dates.txt")) {
+                publishCalendarDates(name);
+            }
+            if (files.contains("stop_times.txt")) {
+                int stopTimes = publishStopTimes(name);
+                log.info("Published {} GTFS with {} stop times", agency.getDisplayName(), stopTimes);
+            }
+        }
+        if (tripsRemoved) {
+            jdbcTemplate.update("delete from stop_times st where not exists (select 1 from trip t where t.id = st.trip)");
+        }
+        if (routesOrTripsChanged) {
+            linkTripRoutes();
+        }
+    }
+
+    private void linkTripRoutes() {
+        //Points trips at the integer id of their route once every agency's routes and trips are published, since
+        //either file can change without the other. Trips whose route is gone lose it, like they did with the join
+        jdbcTemplate.update("update trip t set route = r.id from route r where r.route_id = t.route_id " +
+                "and t.route is distinct from r.id");
+        jdbcTemplate.update("update trip t set route = null where route is not null " +
+                "and not exists (select 1 from route r where r.id = t.route and r.route_id = t.route_id)");
+    }
+
+    private void publishRoutes(String name) {
+        jdbcTemplate.update("insert into route (" + ROUTE_COLUMNS + ") " +
+                "select distinct on (route_id) " + ROUTE_COLUMNS + " from route_staging where agency = ? " +
+                "order by route_id, ctid desc on conflict (route_id) do update set " +
+                "route_name = excluded.route_name, agency = excluded.agency", name);
+        jdbcTemplate.update("delete from route r where agency = ? and not exists " +
+                "(select 1 from route_staging s where s.agency = r.agency and s.route_id = r.route_id)", name);
+    }
+
+    private boolean publishTrips(String name) {
+        //Returns whether trips were removed, their stop times are removed once every agency is published
+        jdbcTemplate.update("insert into trip (" + TRIP_COLUMNS + ") " +
+                "select distinct on (trip_id) " + TRIP_COLUMNS + " from trip_staging where agency = ? " +
+                "order by trip_id, ctid desc on conflict (trip_id) do update set route_id = excluded.route_id, " +
+                "number = excluded.number, destination = excluded.destination, agency = excluded.agency, " +
+                "service_id = excluded.service_id", name);
+        return jdbcTemplate.update("delete from trip t where agency = ? and not exists " +
+                "(select 1 from trip_staging s where s.agency = t.agency and s.trip_id = t.trip_id)", name) > 0;
+    }
+
+    private void publishCalendars(String name) {
+        //Service ids are keyed with the agency, so they never collide with another feed's
+        jdbcTemplate.update("delete from service_calendar where agency = ?", name);
+        jdbcTemplate.update("insert into service_calendar (" + CALENDAR_COLUMNS + ") " +
+                "select distinct on (service_id) " + CALENDAR_COLUMNS + " from service_calendar_staging " +
+                "where agency = ? order by service_id, ctid desc", name);
+    }
+
+    private void publishCalendarDates(String name) {
+        jdbcTemplate.update("delete from service_calendar_date where agency = ?", name);
+        jdbcTemplate.update("insert into service_calendar_date (" + CALENDAR_DATE_COLUMNS + ") " +
+                "select distinct on (service_id, date) " + CALENDAR_DATE_COLUMNS +
+                " from service_calendar_date_staging where agency = ? order by service_id, date, ctid desc", name);
+    }
+
+    private int publishStopTimes(String name) {
+        //Stop times belong to the agency of their trip, new stop ids are added to the stops first
+        jdbcTemplate.update("insert into stop (stop_id) select distinct stop_id from stop_times_staging " +
+                "where agency = ? and stop_id is not null on conflict (stop_id) do nothing", name);
+        jdbcTemplate.update("delete from stop_times st using trip t where t.id = st.trip and t.agency = ?", name);
+        return jdbcTemplate.update("insert into stop_times (trip, stop_sequence, stop, arrival_time, " +
+                "departure_time) select distinct on (t.id, s.stop_sequence) t.id, s.stop_sequence, p.id, " +
+                "coalesce(s.arrival_time, -1), coalesce(s.departure_time, -1) from stop_times_staging s " +
+                "join trip t on t.trip_id = s.trip_id join stop p on p.stop_id = s.stop_id where s.agency = ? " +
+                "order by t.id, s.stop_sequence, s.ctid desc on conflict (trip, stop_sequence) do update set " +
+                "stop = excluded.stop, arrival_time = excluded.arrival_time, " +
+                "departure_time = excluded.departure_time", name);
+    }
+
+    private <T> void copy(String table, String columns, GTFSAgency agency, List<T> rows,
+                          Function<T, Object[]> fields) {
+        //Sends one batch as csv through COPY FROM STDIN on its own connection
+        StringBuilder csv = new StringBuilder(rows.size() * 64);
+        for (T row : rows) {
+            appendField(csv, agency.name());
+            for (Object field : fields.apply(row)) {
+                csv.append(',');
+                appendField(csv, field);
+            }
+            csv.append('\n');
+        }
+
+        long start = System.nanoTime();
+        try (Connection conn = dataSource.getConnection()) {
+            conn.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                    "COPY " + table + " (" + columns + ") FROM STDIN WITH (FORMAT csv)",
+                    new StringReader(csv.toString()));
+            meterRegistry.timer("gtfs.import.write", "agency", agency.name().toLowerCase(), "table", table)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not copy GTFS rows into " + table, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void closeQuietly(Connection conn) {
+        if (conn == null) {
+            return;
+        }
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            log.warn("Could not close connection due to error:", e);
+        }
+    }
+
+    public static class ImportLock implements AutoCloseable {
+        /*
+        Held for a whole import, from preparing the staging tables to publishing them, so two imports never write
+        and read the same staging tables at once
+         */
+        private final Connection conn;
+
+        private ImportLock(Connection conn) {
+            this.conn = conn;
+        }
+
+        @Override
+        public void close() {
+            //Unlocks before the connection goes back to the pool, a session lock would otherwise outlive the import
+            try (Statement statement = conn.createStatement()) {
+                statement.execute("select pg_advisory_unlock(" + IMPORT_LOCK_KEY + ")");
+            } catch (SQLException e) {
+                log.warn("Could not unlock the GTFS import due to error:", e);
+            } finally {
+                closeQuietly(conn);
+            }
+        }
+    }
+
+    private static void appendField(StringBuilder csv, Object value) {
+        //Unquoted empty fields are read as null by COPY, so every present value is quoted
+        if (value == null) {
+            return;
+        }
+        csv.append('"').append(value.toString().replace("\"", "\"\"")).append('"');
+    }
+}
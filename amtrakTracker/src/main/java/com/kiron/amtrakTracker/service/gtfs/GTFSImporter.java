@@ -0,0 +1,626 @@
+package com.kiron.amtrakTracker.service.gtfs;
+
+import com.kiron.amtrakTracker.model.gtfs.FeedImportState;
+import com.kiron.amtrakTracker.model.gtfs.GTFSTime;
+import com.kiron.amtrakTracker.model.gtfs.Route;
+import com.kiron.amtrakTracker.model.gtfs.ServiceCalendar;
+import com.kiron.amtrakTracker.model.gtfs.ServiceCalendarDate;
+import com.kiron.amtrakTracker.model.gtfs.Trip;
+import com.kiron.amtrakTracker.repository.FeedImportStateRepository;
+import com.kiron.amtrakTracker.service.PayloadRecorder;
+import com.kiron.amtrakTracker.service.UpstreamMetrics;
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+@Slf4j
+@Component
+public class GTFSImporter {
+
+    @Autowired
+    private GTFSCopyLoader copyLoader;
+
+    @Autowired
+    private FeedImportStateRepository feedImportStateRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private UpstreamMetrics upstreamMetrics;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PayloadRecorder payloadRecorder;
+
+    //When set, every agency's zip is fetched from <gtfs-url><agency>.zip instead of the agency's own url
+    @Value("${upstream.gtfs-url:}")
+    private String gtfsUrl;
+
+    @Value("${gtfs.import.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${gtfs.import.threads:6}")
+    private int importThreads;
+
+    private static final Set<String> IMPORTED_FILES = Set.of("stop_times.txt", "routes.txt", "trips.txt",
+            "calendar.txt", "calendar_dates.txt");
+
+    //Bumped whenever the parsing of a file changes, so feeds and files imported before are imported again even
+    //though they did not change
+    private static final int FORMAT_VERSION = 2;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        //Downloads and csv parsing are mostly waiting on io, so a bounded pool of virtual threads is used
+        executor = Executors.newFixedThreadPool(importThreads, Thread.ofVirtual().name("gtfs-import-", 0).factory());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public boolean importSchedules() throws IOException, CsvValidationException {
+        //Streams the static GTFS routes, trips and stop times of every agency into the database, returns whether
+        //anything was published
+        Timer.Sample run = Timer.start(meterRegistry);
+        try {
+            boolean changed = importAgencies();
+            run.stop(meterRegistry.timer("gtfs.import", "outcome", "success"));
+            return changed;
+        } catch (IOException | CsvValidationException | RuntimeException e) {
+            run.stop(meterRegistry.timer("gtfs.import", "outcome", "error"));
+            throw e;
+        }
+    }
+
+    private boolean importAgencies() throws IOException, CsvValidationException {
+        //Imports share the staging tables, including imports of other instances of the app, so the whole import
+        //from staging to publishing holds the import lock
+        try (GTFSCopyLoader.ImportLock lock = copyLoader.lockImport()) {
+            return importAgenciesLocked();
+        }
+    }
+
+    private boolean importAgenciesLocked() throws IOException, CsvValidationException {
+        copyLoader.prepareStaging();
+        Map<String, FeedImportState> states = new HashMap<>();
+        feedImportStateRepository.findAll().forEach(state -> states.put(state.getId(), state));
+
+        //Every agency is downloaded at the same time, and the files of a zip are parsed in parallel once it arrives
+        Map<GTFSAgency, AgencyImport> imports = new EnumMap<>(GTFSAgency.class);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (GTFSAgency agency : GTFSAgency.values()) {
+            AgencyImport agencyImport = new AgencyImport(agency, states);
+            imports.put(agency, agencyImport);
+            futures.add(CompletableFuture.supplyAsync(() -> download(agencyImport), executor)
+                    .thenCompose(zip -> parseEntries(agencyImport, zip)));
+        }
+
+        Throwable failure = null;
+        for (CompletableFuture<Void> future : futures) {
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                failure = failure == null ? e.getCause() : failure;
+            }
+        }
+
+        //Every changed file is staged by now, the agencies that loaded completely replace those tables in one
+        //transaction and in agency order, so the result does not depend on which feed finished first. The new
+        //validators and hashes are saved in the same transaction so a failed publish is retried next time
+        Map<GTFSAgency, Set<String>> loaded = new EnumMap<>(GTFSAgency.class);
+        List<FeedImportState> imported = new ArrayList<>();
+        for (AgencyImport agencyImport : imports.values()) {
+            if (agencyImport.isComplete()) {
+                loaded.put(agencyImport.getAgency(), agencyImport.getLoadedFiles());
+                imported.addAll(agencyImport.getImportedStates());
+            }
+        }
+        boolean changed = loaded.values().stream().anyMatch(files -> !files.isEmpty());
+        Timer.Sample publish = Timer.start(meterRegistry);
+        transactionTemplate.executeWithoutResult(status -> {
+            copyLoader.publish(loaded);
+            feedImportStateRepository.saveAll(imported);
+        });
+        publish.stop(meterRegistry.timer("gtfs.import.publish"));
+        log.info("Finished updating GTFS, changed files {}", loaded);
+
+        if (failure instanceof IOException e) {
+            throw e;
+        } else if (failure instanceof CsvValidationException e) {
+            throw e;
+        } else if (failure != null) {
+            throw new IOException("GTFS import failed", failure);
+        }
+        return changed;
+    }
+
+    private Path download(AgencyImport agencyImport) {
+        //Downloads a GTFS zip to a temporary file, so its entries can be read independently without holding it in
+        //memory. The request is conditional on the last import, null is returned when the feed has not changed
+        GTFSAgency agency = agencyImport.getAgency();
+        FeedImportState feedState = agencyImport.getFeedState();
+        String url = urlOf(agency);
+        log.info("Updating GTFS from {}", url);
+        String feed = agency.name().toLowerCase();
+        long fetchStart = System.nanoTime();
+        try {
+            HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+            conn.setRequestMethod("GET");
+            conn.setConnectTimeout(5000);
+            conn.setReadTimeout(10000);
+            boolean sameFormat = Objects.equals(feedState.getFormat_version(), FORMAT_VERSION);
+            if (sameFormat && feedState.getEtag() != null) {
+                conn.setRequestProperty("If-None-Match", feedState.getEtag());
+            }
+            if (sameFormat && feedState.getLast_modified() != null) {
+                conn.setRequestProperty("If-Modified-Since", feedState.getLast_modified());
+            }
+
+            if (conn.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                log.info("GTFS from {} is not modified, skipping", url);
+                conn.disconnect();
+                upstreamMetrics.recordFetch(UpstreamMetrics.GTFS, feed, fetchStart, UpstreamMetrics.NOT_MODIFIED);
+                return null;
+            }
+
+            Path zip = Files.createTempFile("gtfs-" + agency.name().toLowerCase(), ".zip");
+            try (InputStream inputStream = conn.getInputStream()) {
+                Files.copy(inputStream, zip, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                Files.deleteIfExists(zip);
+                throw e;
+            }
+            upstreamMetrics.recordFetch(UpstreamMetrics.GTFS, feed, fetchStart, Files.size(zip));
+            payloadRecorder.record(PayloadRecorder.GTFS + feed, "zip", zip);
+            agencyImport.imported(agency.name(), state -> {
+                state.setEtag(conn.getHeaderField("ETag"));
+                state.setLast_modified(conn.getHeaderField("Last-Modified"));
+            });
+            return zip;
+        } catch (SocketTimeoutException e) {
+            //If the input stream does not load fast enough, we will not update that gtfs data
+            upstreamMetrics.recordFetch(UpstreamMetrics.GTFS, feed, fetchStart, UpstreamMetrics.ERROR);
+            throw new CompletionException(new IOException("Connection timed out", e));
+        } catch (IOException e) {
+            upstreamMetrics.recordFetch(UpstreamMetrics.GTFS, feed, fetchStart, UpstreamMetrics.ERROR);
+            throw new CompletionException(e);
+        }
+    }
+
+    private String urlOf(GTFSAgency agency) {
+        //Url the zip of an agency is downloaded from
+        if (gtfsUrl == null || gtfsUrl.isEmpty()) {
+            return agency.getUrl();
+        }
+        return gtfsUrl + agency.name().toLowerCase() + ".zip";
+    }
+
+    private CompletableFuture<Void> parseEntries(AgencyImport agencyImport, Path zipPath) {
+        //Parses each imported file of the zip on its own thread, every file writes to its own writer
+        if (zipPath == null) {
+            agencyImport.close(true);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        ZipFile zipFile;
+        try {
+            zipFile = new ZipFile(zipPath.toFile());
+        } catch (IOException e) {
+            deleteQuietly(zipPath);
+            return CompletableFuture.failedFuture(e);
+        }
+
+        List<CompletableFuture<Void>> entries = zipFile.stream()
+                .filter(entry -> IMPORTED_FILES.contains(entry.getName()))
+                .map(entry -> CompletableFuture.runAsync(() -> parseEntry(agencyImport, zipFile, entry), executor))
+                .toList();
+
+        return CompletableFuture.allOf(entries.toArray(new CompletableFuture[0]))
+                .whenComplete((result, error) -> {
+                    agencyImport.close(error == null);
+                    try {
+                        zipFile.close();
+                    } catch (IOException e) {
+                        log.warn("Could not close GTFS zip {}", zipPath);
+                    }
+                    deleteQuietly(zipPath);
+                });
+    }
+
+    void parseEntry(AgencyImport agencyImport, ZipFile zipFile, ZipEntry zipEntry) {
+        //Streams one csv file of a GTFS zip into the agency's writers, this assumes the zip is correct format. Package
+        //private along with AgencyImport so the benchmarks can measure parsing without a database
+        GTFSAgency agency = agencyImport.getAgency();
+        String stateId = agency.name() + "/" + zipEntry.getName();
+
+        try {
+            //Files with the same content as the last import are not parsed or written again
+            String sha256 = hash(zipFile, zipEntry);
+            FeedImportState entryState = agencyImport.getStates().get(stateId);
+            if (entryState != null && sha256.equals(entryState.getSha256())
+                    && Objects.equals(entryState.getFormat_version(), FORMAT_VERSION)) {
+                log.info("Zip file {} on url {} is unchanged, skipping", zipEntry.getName(), urlOf(agency));
+                return;
+            }
+            log.info("Zip file has name {} on url {}", zipEntry.getName(), urlOf(agency));
+
+            //Batches are copied to staging while the file is read, parse time leaves out the time spent copying
+            GTFSBatchWriter<?> writer = agencyImport.getWriter(zipEntry.getName());
+            long flushedBefore = writer.getFlushNanos();
+            long parseStart = System.nanoTime();
+            try (InputStream inputStream = zipFile.getInputStream(zipEntry);
+                 CSVReader csvReader = new CSVReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+                //Columns that are not in the same place in every feed are found through the header
+                Map<String, Integer> columns = new HashMap<>();
+                String[] header = csvReader.readNext();
+                for (int i = 0; header != null && i < header.length; i++) {
+                    columns.put(header[i].replace("\uFEFF", "").trim(), i);
+                }
+
+                String[] line;
+                while ((line = csvReader.readNext()) != null) {
+                    //Reading each line into an array, we add each index of line to the according object based on
+                    //which csv file is being read
+                    if (zipEntry.getName().startsWith("calendar")) {
+                        updateCalendarGTFS(zipEntry.getName(), columns, line, agencyImport.getCalendars(),
+                                agencyImport.getCalendarDates());
+                        continue;
+                    }
+
+                    switch (agency) {
+                        case AMTRAK -> updateAmtrakGTFS(zipEntry.getName(), columns, line,
+                                agencyImport.getStopTimes(), agencyImport.getRoutes(), agencyImport.getTrips());
+                        case VIA -> updateViaGTFS(zipEntry.getName(), columns, line, agencyImport.getStopTimes(),
+                                agencyImport.getRoutes(), agencyImport.getTrips());
+                        case SAN_JOAQUINS -> updateSanJGTFS(zipEntry.getName(), columns, line,
+                                agencyImport.getStopTimes(), agencyImport.getRoutes(), agencyImport.getTrips());
+                    }
+                }
+            }
+            meterRegistry.timer("gtfs.import.parse", "agency", agency.name().toLowerCase(), "file", zipEntry.getName())
+                    .record(System.nanoTime() - parseStart - (writer.getFlushNanos() - flushedBefore),
+                            TimeUnit.NANOSECONDS);
+            agencyImport.getLoadedFiles().add(zipEntry.getName());
+            agencyImport.imported(stateId, state -> state.setSha256(sha256));
+        } catch (IOException | CsvValidationException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private String hash(ZipFile zipFile, ZipEntry zipEntry) throws IOException {
+        //SHA-256 of the uncompressed contents of a zip entry
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream inputStream = zipFile.getInputStream(zipEntry)) {
+            byte[] buffer = new byte[8192];
+            int length;
+            while ((length = inputStream.read(buffer)) > 0) {
+                digest.update(buffer, 0, length);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete temporary GTFS file {}", path);
+        }
+    }
+
+    @Getter
+    class AgencyImport {
+        /*
+        Writers of one agency, each is only used by the thread parsing its file and copies its batches to staging.
+        Also collects which files were loaded and the import state to save once they are published
+         */
+        private final GTFSAgency agency;
+        private final Map<String, FeedImportState> states;
+        private final Set<String> loadedFiles = ConcurrentHashMap.newKeySet();
+        private final List<FeedImportState> importedStates = new CopyOnWriteArrayList<>();
+        private final GTFSBatchWriter<GTFSStopTime> stopTimes;
+        private final GTFSBatchWriter<Route> routes;
+        private final GTFSBatchWriter<Trip> trips;
+        private final GTFSBatchWriter<ServiceCalendar> calendars;
+        private final GTFSBatchWriter<ServiceCalendarDate> calendarDates;
+        private boolean complete;
+
+        AgencyImport(GTFSAgency agency, Map<String, FeedImportState> states) {
+            this.agency = agency;
+            this.states = states;
+            this.stopTimes = new GTFSBatchWriter<>(agency.getDisplayName() + " stop time", batchSize,
+                    rows -> copyLoader.copyStopTimes(agency, rows));
+            this.routes = new GTFSBatchWriter<>(agency.getDisplayName() + " route", batchSize,
+                    rows -> copyLoader.copyRoutes(agency, rows));
+            this.trips = new GTFSBatchWriter<>(agency.getDisplayName() + " trip", batchSize,
+                    rows -> copyLoader.copyTrips(agency, rows));
+            this.calendars = new GTFSBatchWriter<>(agency.getDisplayName() + " calendar", batchSize,
+                    rows -> copyLoader.copyCalendars(agency, rows));
+            this.calendarDates = new GTFSBatchWriter<>(agency.getDisplayName() + " calendar date", batchSize,
+                    rows -> copyLoader.copyCalendarDates(agency, rows));
+        }
+
+        private GTFSBatchWriter<?> getWriter(String file) {
+            //The writer a file of the zip writes its rows to
+            return switch (file) {
+                case "stop_times.txt" -> stopTimes;
+                case "routes.txt" -> routes;
+                case "trips.txt" -> trips;
+                case "calendar.txt" -> calendars;
+                default -> calendarDates;
+            };
+        }
+
+        private FeedImportState getFeedState() {
+            return states.getOrDefault(agency.name(), new FeedImportState(agency.name()));
+        }
+
+        private void imported(String id, Consumer<FeedImportState> update) {
+            //Records the new state of the feed or one of its files, it is saved only if the agency is published
+            FeedImportState state = new FeedImportState(id);
+            FeedImportState previous = states.get(id);
+            if (previous != null) {
+                state.setEtag(previous.getEtag());
+                state.setLast_modified(previous.getLast_modified());
+                state.setSha256(previous.getSha256());
+            }
+            update.accept(state);
+            state.setFormat_version(FORMAT_VERSION);
+            state.setImported_at(System.currentTimeMillis());
+            importedStates.add(state);
+        }
+
+        void close(boolean success) {
+            stopTimes.close();
+            routes.close();
+            trips.close();
+            calendars.close();
+            calendarDates.close();
+            complete = success;
+        }
+    }
+
+    private void updateSanJGTFS(String name, Map<String, Integer> columns, String[] line,
+                                GTFSBatchWriter<GTFSStopTime> stopTimes, GTFSBatchWriter<Route> routes,
+                                GTFSBatchWriter<Trip> trips) {
+        //Parses Amtrak San Joaquin csv data
+
+//        if (name.equals("stops.txt") && line[0].length() == 3 && !line[7].contains("acerail")) {
+//            Station station = new Station();
+//            station.setId(line[0]);
+//            station.setCode(line[0]);
+//            station.setName(line[2]);
+//            station.setWebsite(line[7]);
+//            station.setAdmin_area("CA");
+//            station.setTime_zone("America/Los_Angeles");
+//            stations.add(station);
+        if (name.equals("stop_times.txt") && line[0].length() == 3) {
+            GTFSStopTime stopTime = new GTFSStopTime();
+            stopTime.setTrip_id(line[0]);
+            stopTime.setArrival_time(GTFSTime.parse(line[3]));
+            stopTime.setDeparture_time(GTFSTime.parse(line[4]));
+            stopTime.setStop_id(line[2]);
+            stopTime.setStop_sequence(Integer.parseInt(line[1]));
+            stopTimes.write(stopTime);
+        } else if (name.equals("routes.txt") && line[0].equals("SJ2")) {
+            Route route = new Route();
+            route.setRoute_id(line[0]);
+            route.setRoute_name("San Joaquins");
+            routes.write(route);
+        } else if (name.equals("trips.txt") && line[0].length() == 3) {
+            Trip trip = new Trip();
+            trip.setTrip_id(line[0]);
+            trip.setRoute_id(line[1]);
+            trip.setNumber(Integer.parseInt(line[0]));
+            trip.setDestination(line[3]);
+            trip.setService_id(column(columns, line, "service_id"));
+            trips.write(trip);
+        }
+    }
+
+    private void updateAmtrakGTFS(String name, Map<String, Integer> columns, String[] line,
+                                  GTFSBatchWriter<GTFSStopTime> stopTimes, GTFSBatchWriter<Route> routes,
+                                  GTFSBatchWriter<Trip> trips) {
+        //Parses Amtrak csv data
+
+//        if (name.equals("stops.txt")) {
+//            Station station = new Station();
+//            station.setId(line[0]);
+//            station.setCode(line[0]);
+//            station.setName(getAmtrakStationName(line[0], line[1]));
+//            station.setWebsite(line[2]);
+//            station.setTime_zone(line[3]);
+//            stations.add(station);
+        if (name.equals("stop_times.txt")) {
+            GTFSStopTime stopTime = new GTFSStopTime();
+            stopTime.setTrip_id(line[0]);
+            stopTime.setArrival_time(GTFSTime.parse(line[1]));
+            stopTime.setDeparture_time(GTFSTime.parse(line[2]));
+            stopTime.setStop_id(line[3]);
+            stopTime.setStop_sequence(Integer.parseInt(line[4]));
+            stopTimes.write(stopTime);
+        } else if (name.equals("routes.txt")) {
+            Route route = new Route();
+            route.setRoute_id(line[0]);
+            route.setRoute_name(line[3]);
+            routes.write(route);
+        } else if (name.equals("trips.txt")) {
+            Trip trip = new Trip();
+            trip.setTrip_id(line[2]);
+            trip.setRoute_id(line[0]);
+            trip.setNumber(Integer.parseInt(line[3]));
+            trip.setDestination(line[6]);
+            trip.setService_id(column(columns, line, "service_id"));
+            trips.write(trip);
+        }
+    }
+
+    private void updateViaGTFS(String name, Map<String, Integer> columns, String[] line,
+                               GTFSBatchWriter<GTFSStopTime> stopTimes, GTFSBatchWriter<Route> routes,
+                               GTFSBatchWriter<Trip> trips) {
+        //Parses VIA Rail csv data
+
+//        if (name.equals("stops.txt")) {
+//            Station station = new Station();
+//            station.setId(line[0]);
+//            station.setCode(line[1]);
+//            station.setName(line[2]);
+//            station.setTime_zone(line[6]);
+//            stations.add(station);
+        if (name.equals("stop_times.txt")) {
+            GTFSStopTime stopTime = new GTFSStopTime();
+            stopTime.setTrip_id(line[0]);
+            stopTime.setArrival_time(GTFSTime.parse(line[1]));
+            stopTime.setDeparture_time(GTFSTime.parse(line[2]));
+            stopTime.setStop_id(line[3]);
+            stopTime.setStop_sequence(Integer.parseInt(line[4]));
+            stopTimes.write(stopTime);
+        } else if (name.equals("routes.txt")) {
+            Route route = new Route();
+            route.setRoute_id(line[0]);
+            route.setRoute_name(getViaRouteName(line[2]));
+            routes.write(route);
+        } else if (name.equals("trips.txt")) {
+            Trip trip = new Trip();
+            trip.setTrip_id(line[2]);
+            trip.setRoute_id(line[0]);
+            if (line[4].isEmpty()) {
+                trip.setNumber(0);
+            } else if (line[4].contains("-")) {
+                StringTokenizer st = new StringTokenizer(line[4], "-");
+                trip.setNumber(Integer.parseInt(st.nextToken()));
+            } else {
+                trip.setNumber(Integer.parseInt(line[4]));
+                //maple leaf case
+            }
+            trip.setDestination(line[5]);
+            trip.setService_id(column(columns, line, "service_id"));
+            trips.write(trip);
+        }
+    }
+
+    private void updateCalendarGTFS(String name, Map<String, Integer> columns, String[] line,
+                                    GTFSBatchWriter<ServiceCalendar> calendars,
+                                    GTFSBatchWriter<ServiceCalendarDate> calendarDates) {
+        //Parses the service calendars, which every feed writes the standard way so they are read by column name
+        try {
+            if (name.equals("calendar.txt")) {
+                ServiceCalendar calendar = new ServiceCalendar();
+                calendar.setService_id(column(columns, line, "service_id"));
+                calendar.setMonday("1".equals(column(columns, line, "monday")));
+                calendar.setTuesday("1".equals(column(columns, line, "tuesday")));
+                calendar.setWednesday("1".equals(column(columns, line, "wednesday")));
+                calendar.setThursday("1".equals(column(columns, line, "thursday")));
+                calendar.setFriday("1".equals(column(columns, line, "friday")));
+                calendar.setSaturday("1".equals(column(columns, line, "saturday")));
+                calendar.setSunday("1".equals(column(columns, line, "sunday")));
+                calendar.setStart_date(parseDate(column(columns, line, "start_date")));
+                calendar.setEnd_date(parseDate(column(columns, line, "end_date")));
+                if (calendar.getService_id() != null) {
+                    calendars.write(calendar);
+                }
+            } else if (name.equals("calendar_dates.txt")) {
+                ServiceCalendarDate calendarDate = new ServiceCalendarDate();
+                calendarDate.setService_id(column(columns, line, "service_id"));
+                calendarDate.setDate(parseDate(column(columns, line, "date")));
+                String exceptionType = column(columns, line, "exception_type");
+                calendarDate.setException_type(exceptionType == null ? null : Integer.parseInt(exceptionType));
+                if (calendarDate.getService_id() != null && calendarDate.getDate() != null) {
+                    calendarDates.write(calendarDate);
+                }
+            }
+        } catch (DateTimeParseException | NumberFormatException e) {
+            log.warn("Skipping malformed {} row {}", name, Arrays.toString(line));
+        }
+    }
+
+    private LocalDate parseDate(String date) {
+        //GTFS dates are written yyyyMMdd
+        return date == null ? null : LocalDate.parse(date, DateTimeFormatter.BASIC_ISO_DATE);
+    }
+
+    private String column(Map<String, Integer> columns, String[] line, String column) {
+        //Value of a named column, null when the file does not have it
+        Integer index = columns.get(column);
+        if (index == null || index >= line.length) {
+            return null;
+        }
+        String value = line[index].trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private String getAmtrakStationName(String code, String defaultName) {
+        //With the csv way of retriving station info, this is not used right now
+        return switch (code) {
+            case "BON" -> "Boston North Station";
+            case "BOS" -> "Boston South Station";
+            case "BBY" -> "Boston Back Bay Station";
+            case "NYP" -> "New York Moynihan Train Hall at Penn Station";
+            case "BFX" -> "Buffalo Exchange Street Station";
+            case "BUF" -> "Buffalo Depew Station";
+            default -> defaultName;
+        };
+    }
+
+    private String getViaRouteName(String defaultRoute) {
+        return switch (defaultRoute) {
+            case "Vancouver - Toronto" -> "Canadian";
+            case "Montréal - Halifax" -> "Ocean";
+            case "Toronto - New York" -> "Maple Leaf";
+            case "Sudbury - White River" -> "Lake Superior";
+            case "Jasper - Prince Rupert" -> "Skeena";
+            case "Winnipeg - Churchill", "The Pas - Churchill" -> "Hudson Bay";
+            case "Montréal - Senneterre" -> "Abitibi";
+            case "Montréal - Jonquière" -> "Saguenay";
+            default -> "Corridor: " + defaultRoute;
+        };
+    }
+}
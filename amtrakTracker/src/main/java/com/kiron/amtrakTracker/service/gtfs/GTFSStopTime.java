@@ -0,0 +1,16 @@
+package com.kiron.amtrakTracker.service.gtfs;
+
+import lombok.Data;
+
+@Data
+public class GTFSStopTime {
+    /*
+    Row of a stop_times.txt as it is staged, the trip and stop are resolved to their integer ids when the agency is
+    published
+     */
+    private String trip_id;
+    private Integer stop_sequence;
+    private Integer arrival_time;
+    private Integer departure_time;
+    private String stop_id;
+}
@@ -0,0 +1,104 @@
+-- Schema as hibernate ddl-auto created it before migrations were used. Every statement is idempotent, so databases
+-- created by ddl-auto at any earlier point are brought to the same state as new ones
+
+create table if not exists station (
+    id         varchar(255) not null primary key,
+    admin_area varchar(255),
+    code       varchar(255),
+    name       varchar(255),
+    time_zone  varchar(255),
+    website    varchar(255)
+);
+
+create table if not exists train_parsed (
+    id                 varchar(255) not null primary key,
+    arrival_epoch      bigint,
+    destination        varchar(255),
+    is_active          boolean,
+    last_station       varchar(255),
+    last_station_delay integer,
+    latitude           float(53),
+    longitude          float(53),
+    name               varchar(255),
+    next_station       varchar(255),
+    next_station_delay integer,
+    number             integer,
+    railroad           varchar(255),
+    scheduled_arrival  varchar(255),
+    speed              float(53)
+);
+
+create table if not exists feed_import_state (
+    id            varchar(255) not null primary key,
+    etag          varchar(255),
+    imported_at   bigint,
+    last_modified varchar(255),
+    sha256        varchar(255)
+);
+alter table feed_import_state add column if not exists format_version integer;
+
+create table if not exists route (
+    route_id   varchar(255) not null primary key,
+    route_name varchar(255)
+);
+alter table route add column if not exists agency varchar(255);
+
+create table if not exists trip (
+    trip_id     varchar(255) not null primary key,
+    destination varchar(255),
+    number      integer,
+    route_id    varchar(255)
+);
+alter table trip add column if not exists agency varchar(255);
+alter table trip add column if not exists service_id varchar(255);
+
+create table if not exists stop_times (
+    trip_id        varchar(255) not null,
+    stop_sequence  integer      not null,
+    arrival_time   integer      not null,
+    departure_time integer,
+    stop_id        varchar(255),
+    primary key (arrival_time, stop_sequence, trip_id)
+);
+alter table stop_times add column if not exists agency varchar(255);
+
+-- Schedule times were stored as "HH:mm:ss" text before they were stored as seconds
+do $$
+declare
+    time_column text;
+begin
+    for time_column in
+        select column_name from information_schema.columns
+        where table_schema = current_schema() and table_name = 'stop_times'
+          and column_name in ('arrival_time', 'departure_time') and data_type <> 'integer'
+    loop
+        execute format('alter table stop_times alter column %1$I type integer using case '
+                           'when trim(%1$I) ~ ''^[0-9]+:[0-9]{2}:[0-9]{2}$'' then '
+                           'split_part(trim(%1$I), '':'', 1)::integer * 3600 + '
+                           'split_part(trim(%1$I), '':'', 2)::integer * 60 + '
+                           'split_part(trim(%1$I), '':'', 3)::integer else -1 end', time_column);
+    end loop;
+end $$;
+
+create table if not exists service_calendar (
+    agency     varchar(255) not null,
+    service_id varchar(255) not null,
+    end_date   date,
+    friday     boolean,
+    monday     boolean,
+    saturday   boolean,
+    start_date date,
+    sunday     boolean,
+    thursday   boolean,
+    tuesday    boolean,
+    wednesday  boolean,
+    primary key (agency, service_id)
+);
+
+create table if not exists service_calendar_date (
+    agency         varchar(255) not null,
+    date           date         not null,
+    service_id     varchar(255) not null,
+    exception_type integer,
+    primary key (agency, date, service_id)
+);
@@ -0,0 +1,95 @@
+-- Routes, trips and stops get integer surrogate keys, trips reference routes and stop times reference trips and
+-- stops through them. The natural GTFS ids stay unique so imports can still match rows on them
+
+alter table route drop constraint route_pkey;
+alter table route add column id integer generated by default as identity;
+alter table route add constraint route_pkey primary key (id);
+alter table route add constraint route_route_id_key unique (route_id);
+
+alter table trip drop constraint trip_pkey;
+alter table trip add column id integer generated by default as identity;
+alter table trip add constraint trip_pkey primary key (id);
+alter table trip add constraint trip_trip_id_key unique (trip_id);
+alter table trip add column route integer;
+update trip t set route = r.id from route r where r.route_id = t.route_id;
+
+create table stop (
+    id      integer generated by default as identity,
+    stop_id varchar(255) not null,
+    constraint stop_pkey primary key (id),
+    constraint stop_stop_id_key unique (stop_id)
+);
+insert into stop (stop_id)
+select distinct stop_id from stop_times where stop_id is not null order by stop_id;
+
+-- A trip calls at a stop sequence once. The primary key covers reading a trip's stops in order, and the stop index
+-- covers reading a station's stop times by departure, both without visiting the table
+create table stop_times_compact (
+    trip           integer not null,
+    stop_sequence  integer not null,
+    stop           integer not null,
+    arrival_time   integer not null,
+    departure_time integer not null,
+    constraint stop_times_compact_pkey primary key (trip, stop_sequence) include (stop, arrival_time, departure_time)
+);
+insert into stop_times_compact (trip, stop_sequence, stop, arrival_time, departure_time)
+select distinct on (t.id, st.stop_sequence) t.id, st.stop_sequence, s.id, st.arrival_time,
+                                            coalesce(st.departure_time, -1)
+from stop_times st
+         join trip t on t.trip_id = st.trip_id
+         join stop s on s.stop_id = st.stop_id
+order by t.id, st.stop_sequence, st.ctid desc;
+
+drop table stop_times;
+alter table stop_times_compact rename to stop_times;
+alter index stop_times_compact_pkey rename to stop_times_pkey;
+create index stop_times_stop_departure on stop_times (stop, departure_time) include (trip, stop_sequence, arrival_time);
+
+-- Staging tables of the COPY import, they used to be created on the first import
+drop table if exists stop_times_staging, trip_staging, route_staging, service_calendar_staging,
+    service_calendar_date_staging;
+
+create unlogged table stop_times_staging (
+    agency         varchar(32),
+    trip_id        varchar(255),
+    stop_sequence  integer,
+    arrival_time   integer,
+    departure_time integer,
+    stop_id        varchar(255)
+);
+
+create unlogged table trip_staging (
+    agency      varchar(32),
+    trip_id     varchar(255),
+    route_id    varchar(255),
+    number      integer,
+    destination varchar(255),
+    service_id  varchar(255)
+);
+
+create unlogged table route_staging (
+    agency     varchar(32),
+    route_id   varchar(255),
+    route_name varchar(255)
+);
+
+create unlogged table service_calendar_staging (
+    agency     varchar(32),
+    service_id varchar(255),
+    monday     boolean,
+    tuesday    boolean,
+    wednesday  boolean,
+    thursday   boolean,
+    friday     boolean,
+    saturday   boolean,
+    sunday     boolean,
+    start_date date,
+    end_date   date
+);
+
+create unlogged table service_calendar_date_staging (
+    agency         varchar(32),
+    service_id     varchar(255),
+    date           date,
+    exception_type integer
+);
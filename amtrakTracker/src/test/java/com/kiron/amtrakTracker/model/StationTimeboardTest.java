@@ -0,0 +1,110 @@
+package com.kiron.amtrakTracker.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StationTimeboardTest {
+
+	private static TimeboardRow row(String name, Integer number, Long departure) {
+		TimeboardRow row = new TimeboardRow();
+		row.setName(name);
+		row.setNumber(number);
+		row.setScheduled_departure_epoch(departure);
+		return row;
+	}
+
+	private static StationTimeboard timeboard(List<TimeboardRow> rows) {
+		StationTimeboard timeboard = new StationTimeboard("NYP", "New York", null, "NY");
+		rows.forEach(timeboard::addRow);
+		timeboard.sortTimeboard();
+		return timeboard;
+	}
+
+	private static List<TimeboardRow> pageThrough(StationTimeboard timeboard, Long from, Long to, int limit) {
+		//Follows the cursors to the last page, collecting every row sent
+		List<TimeboardRow> rows = new ArrayList<>();
+		String cursor = null;
+		int pages = 0;
+		do {
+			StationTimeboard page = timeboard.page(from, to, cursor, limit);
+			assertTrue(page.getTimeboard().size() <= limit);
+			rows.addAll(page.getTimeboard());
+			cursor = page.getNext_cursor();
+			assertTrue(++pages <= timeboard.getTimeboard().size() + 1, "cursor did not advance");
+		} while (cursor != null);
+		return rows;
+	}
+
+	private static List<TimeboardRow> window(StationTimeboard timeboard, Long from, Long to) {
+		return timeboard.getTimeboard().stream()
+				.filter(row -> (from == null || row.getSortTime() >= from) && (to == null || row.getSortTime() <= to))
+				.toList();
+	}
+
+	private static StationTimeboard crowdedTimeboard() {
+		//Many rows share a time, and some share a time and a train number, like the same train on two dates
+		List<TimeboardRow> rows = new ArrayList<>();
+		Random random = new Random(20);
+		for (int i = 0; i < 120; i++) {
+			Integer number = random.nextInt(8) == 0 ? null : random.nextInt(4);
+			Long departure = random.nextInt(10) == 0 ? null : 1000L + 60L * random.nextInt(5);
+			rows.add(row("row " + i, number, departure));
+		}
+		return timeboard(rows);
+	}
+
+	@Test
+	void pagesThroughRowsWithEqualTimesWithoutGapsOrDuplicates() {
+		StationTimeboard timeboard = crowdedTimeboard();
+
+		for (int limit = 1; limit <= 13; limit++) {
+			assertEquals(timeboard.getTimeboard(), pageThrough(timeboard, null, null, limit), "limit " + limit);
+		}
+	}
+
+	@Test
+	void pagesThroughTimeWindows() {
+		StationTimeboard timeboard = crowdedTimeboard();
+
+		for (long[] bounds : new long[][]{{1000, 1000}, {1060, 1180}, {1030, 1130}, {0, 999}, {1240, 5000}}) {
+			Long from = bounds[0];
+			Long to = bounds[1];
+			assertEquals(window(timeboard, from, to), timeboard.page(from, to, null, null).getTimeboard());
+			for (int limit = 1; limit <= 7; limit++) {
+				assertEquals(window(timeboard, from, to), pageThrough(timeboard, from, to, limit));
+			}
+		}
+		assertEquals(window(timeboard, 1120L, null), pageThrough(timeboard, 1120L, null, 4));
+		assertEquals(window(timeboard, null, 1060L), pageThrough(timeboard, null, 1060L, 4));
+	}
+
+	@Test
+	void onlyPagesWithMoreRowsHaveACursor() {
+		StationTimeboard timeboard = timeboard(List.of(
+				row("a", 1, 100L),
+				row("b", 2, 100L),
+				row("c", 2, 100L)));
+
+		StationTimeboard first = timeboard.page(null, null, null, 2);
+		assertEquals("100_2_1", first.getNext_cursor());
+		StationTimeboard second = timeboard.page(null, null, first.getNext_cursor(), 2);
+		assertEquals(List.of("c"), second.getTimeboard().stream().map(TimeboardRow::getName).toList());
+		assertNull(second.getNext_cursor());
+		assertNull(timeboard.page(null, null, null, 3).getNext_cursor());
+	}
+
+	@Test
+	void rejectsInvalidCursorsAndLimits() {
+		StationTimeboard timeboard = crowdedTimeboard();
+
+		assertThrows(IllegalArgumentException.class, () -> timeboard.page(null, null, "100_2", 5));
+		assertThrows(IllegalArgumentException.class, () -> timeboard.page(null, null, "100_2_1_0", 5));
+		assertThrows(IllegalArgumentException.class, () -> timeboard.page(null, null, "next_2_1", 5));
+		assertThrows(IllegalArgumentException.class, () -> timeboard.page(null, null, null, 0));
+	}
+}
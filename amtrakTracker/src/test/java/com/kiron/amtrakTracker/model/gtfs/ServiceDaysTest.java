@@ -0,0 +1,109 @@
+package com.kiron.amtrakTracker.model.gtfs;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServiceDaysTest {
+
+	//2026-06-01 is a Monday
+	private static final LocalDate MONDAY = LocalDate.of(2026, 6, 1);
+
+	private static ServiceCalendar weekdays(String agency, String serviceId, LocalDate start, LocalDate end) {
+		ServiceCalendar calendar = new ServiceCalendar();
+		calendar.setAgency(agency);
+		calendar.setService_id(serviceId);
+		calendar.setMonday(true);
+		calendar.setTuesday(true);
+		calendar.setWednesday(true);
+		calendar.setThursday(true);
+		calendar.setFriday(true);
+		calendar.setSaturday(false);
+		calendar.setSunday(null);
+		calendar.setStart_date(start);
+		calendar.setEnd_date(end);
+		return calendar;
+	}
+
+	private static ServiceCalendarDate exception(String agency, String serviceId, LocalDate date, int type) {
+		ServiceCalendarDate calendarDate = new ServiceCalendarDate();
+		calendarDate.setAgency(agency);
+		calendarDate.setService_id(serviceId);
+		calendarDate.setDate(date);
+		calendarDate.setException_type(type);
+		return calendarDate;
+	}
+
+	private final ServiceDays serviceDays = new ServiceDays.Builder()
+			.addCalendar(weekdays("amtrak", "weekday", MONDAY, MONDAY.plusDays(27)))
+			.addCalendar(weekdays("via", "weekday", MONDAY.plusDays(7), MONDAY.plusDays(13)))
+			.addCalendarDate(exception("amtrak", "weekday", MONDAY.plusDays(5), ServiceCalendarDate.ADDED))
+			.addCalendarDate(exception("amtrak", "weekday", MONDAY.plusDays(2), ServiceCalendarDate.REMOVED))
+			.addCalendarDate(exception("amtrak", "special", MONDAY.minusDays(3), ServiceCalendarDate.ADDED))
+			.build();
+
+	private final int weekday = serviceDays.getCode("amtrak", "weekday");
+	private final int viaWeekday = serviceDays.getCode("via", "weekday");
+	private final int special = serviceDays.getCode("amtrak", "special");
+
+	@Test
+	void runsOnTheCalendarWeekdays() {
+		assertTrue(serviceDays.isActive(weekday, MONDAY));
+		assertTrue(serviceDays.isActive(weekday, MONDAY.plusDays(4)));
+		assertFalse(serviceDays.isActive(weekday, MONDAY.plusDays(6)));
+		assertTrue(serviceDays.isActive(weekday, MONDAY.plusDays(7)));
+	}
+
+	@Test
+	void calendarDatesAddAndRemoveDays() {
+		//The added Saturday runs, the removed Wednesday does not, the days around them keep the calendar
+		assertTrue(serviceDays.isActive(weekday, MONDAY.plusDays(5)));
+		assertFalse(serviceDays.isActive(weekday, MONDAY.plusDays(12)));
+		assertFalse(serviceDays.isActive(weekday, MONDAY.plusDays(2)));
+		assertTrue(serviceDays.isActive(weekday, MONDAY.plusDays(9)));
+	}
+
+	@Test
+	void servicesOnlyInCalendarDatesRunOnTheirAddedDays() {
+		assertTrue(serviceDays.isActive(special, MONDAY.minusDays(3)));
+		assertFalse(serviceDays.isActive(special, MONDAY.minusDays(2)));
+		assertFalse(serviceDays.isActive(special, MONDAY));
+	}
+
+	@Test
+	void doesNotRunOutsideTheCalendarRange() {
+		assertFalse(serviceDays.isActive(weekday, MONDAY.minusDays(7)));
+		assertFalse(serviceDays.isActive(weekday, MONDAY.plusDays(28)));
+		assertFalse(serviceDays.isActive(weekday, MONDAY.minusYears(10)));
+		assertFalse(serviceDays.isActive(viaWeekday, MONDAY));
+		assertTrue(serviceDays.isActive(viaWeekday, MONDAY.plusDays(7)));
+	}
+
+	@Test
+	void keysServicesByAgency() {
+		assertEquals(3, serviceDays.size());
+		assertNotEquals(weekday, viaWeekday);
+		assertEquals(ServiceDays.UNKNOWN, serviceDays.getCode("via", "special"));
+		assertEquals(ServiceDays.UNKNOWN, serviceDays.getCode("amtrak", null));
+	}
+
+	@Test
+	void unknownServicesRunEveryDay() {
+		assertTrue(serviceDays.isActive(ServiceDays.UNKNOWN, MONDAY.minusYears(10)));
+		assertTrue(ServiceDays.empty().isActive(ServiceDays.UNKNOWN, MONDAY));
+		assertEquals(0, ServiceDays.empty().size());
+	}
+
+	@Test
+	void listsTheServicesActiveOnADate() {
+		BitSet expected = new BitSet();
+		expected.set(weekday);
+		expected.set(viaWeekday);
+
+		assertEquals(expected, serviceDays.getActiveServices(MONDAY.plusDays(8)));
+		assertTrue(serviceDays.getActiveServices(MONDAY.plusDays(6)).isEmpty());
+	}
+}
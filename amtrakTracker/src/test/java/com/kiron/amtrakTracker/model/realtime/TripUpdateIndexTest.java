@@ -0,0 +1,119 @@
+package com.kiron.amtrakTracker.model.realtime;
+
+import com.google.transit.realtime.GtfsRealtime.FeedEntity;
+import com.google.transit.realtime.GtfsRealtime.FeedHeader;
+import com.google.transit.realtime.GtfsRealtime.FeedMessage;
+import com.google.transit.realtime.GtfsRealtime.TripDescriptor;
+import com.google.transit.realtime.GtfsRealtime.TripUpdate;
+import com.google.transit.realtime.GtfsRealtime.TripUpdate.StopTimeEvent;
+import com.google.transit.realtime.GtfsRealtime.TripUpdate.StopTimeUpdate;
+import com.google.transit.realtime.GtfsRealtime.VehiclePosition;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TripUpdateIndexTest {
+
+	private static StopTimeUpdate stop(String stopId, int sequence, long arrival) {
+		return StopTimeUpdate.newBuilder()
+				.setStopId(stopId)
+				.setStopSequence(sequence)
+				.setArrival(StopTimeEvent.newBuilder().setTime(arrival))
+				.build();
+	}
+
+	private static TripUpdate tripUpdate(String tripId, String startDate, long timestamp, StopTimeUpdate... stops) {
+		return TripUpdate.newBuilder()
+				.setTrip(TripDescriptor.newBuilder().setTripId(tripId).setStartDate(startDate))
+				.setTimestamp(timestamp)
+				.addAllStopTimeUpdate(List.of(stops))
+				.build();
+	}
+
+	private static TripUpdateIndex index(TripUpdate... tripUpdates) {
+		FeedMessage.Builder feed = FeedMessage.newBuilder()
+				.setHeader(FeedHeader.newBuilder().setGtfsRealtimeVersion("2.0"));
+		int id = 0;
+		for (TripUpdate tripUpdate : tripUpdates) {
+			feed.addEntity(FeedEntity.newBuilder().setId(String.valueOf(id++)).setTripUpdate(tripUpdate));
+		}
+		return TripUpdateIndex.build(feed.build());
+	}
+
+	@Test
+	void normalizesAmtrakTripIds() {
+		assertEquals("251208", TripUpdateIndex.normalizeTripId("2026-06-01_AMTK_251208"));
+		assertEquals("251208", TripUpdateIndex.normalizeTripId("20260601_AMTK_251208"));
+		assertEquals("VIA_84", TripUpdateIndex.normalizeTripId("VIA_84"));
+	}
+
+	@Test
+	void indexesEveryTripUpdateOfATripInFeedOrder() {
+		FeedMessage feed = FeedMessage.newBuilder()
+				.setHeader(FeedHeader.newBuilder().setGtfsRealtimeVersion("2.0"))
+				.addEntity(FeedEntity.newBuilder().setId("1")
+						.setTripUpdate(tripUpdate("20260601_AMTK_5", "20260601", 1)))
+				.addEntity(FeedEntity.newBuilder().setId("2")
+						.setTripUpdate(tripUpdate("20260602_AMTK_5", "20260602", 1)))
+				.addEntity(FeedEntity.newBuilder().setId("3")
+						.setTripUpdate(tripUpdate("6", "20260601", 1)))
+				.addEntity(FeedEntity.newBuilder().setId("4")
+						.setTripUpdate(TripUpdate.newBuilder().setTrip(TripDescriptor.newBuilder().setRouteId("7"))))
+				.addEntity(FeedEntity.newBuilder().setId("5")
+						.setVehicle(VehiclePosition.newBuilder()))
+				.build();
+
+		TripUpdateIndex index = TripUpdateIndex.build(feed);
+
+		assertEquals(2, index.size());
+		assertEquals(List.of("20260601", "20260602"), index.getTripUpdates("5").stream()
+				.map(entry -> entry.getTripUpdate().getTrip().getStartDate()).toList());
+		assertEquals(1, index.getTripUpdates("6").size());
+		assertTrue(index.getTripUpdates("7").isEmpty());
+	}
+
+	@Test
+	void findsStopsBySequenceWhenItAgreesWithTheStop() {
+		//The trip calls at CHI twice, and its realtime sequences are one off from the static ones after NPV
+		TripUpdateIndex.TripEntry entry = index(tripUpdate("1", "20260601", 1,
+				stop("CHI", 1, 100),
+				stop("NPV", 2, 200),
+				stop("CHI", 4, 300))).getTripUpdates("1").get(0);
+
+		assertEquals(100, entry.findStopTimeUpdate("CHI", 1).getArrival().getTime());
+		assertEquals(300, entry.findStopTimeUpdate("CHI", 4).getArrival().getTime());
+		assertEquals(200, entry.findStopTimeUpdate("NPV", 3).getArrival().getTime());
+		assertEquals(100, entry.findStopTimeUpdate("CHI", 2).getArrival().getTime());
+		assertNull(entry.findStopTimeUpdate("LAX", 1));
+	}
+
+	@Test
+	void changedTripsIgnoreTimestampsAndFindChangedAddedAndRemovedTrips() {
+		TripUpdateIndex previous = index(
+				tripUpdate("1", "20260601", 10, stop("CHI", 1, 100)),
+				tripUpdate("2", "20260601", 10, stop("NPV", 1, 100)),
+				tripUpdate("3", "20260601", 10, stop("LAX", 1, 100)));
+		TripUpdateIndex next = index(
+				tripUpdate("1", "20260601", 20, stop("CHI", 1, 100)),
+				tripUpdate("2", "20260601", 20, stop("NPV", 1, 160)),
+				tripUpdate("4", "20260601", 20, stop("SEA", 1, 100)));
+
+		assertEquals(Set.of("2", "3", "4"), TripUpdateIndex.changedTrips(previous, next));
+		assertEquals(Set.of("1", "2", "4"), TripUpdateIndex.changedTrips(null, next));
+		assertTrue(TripUpdateIndex.changedTrips(next, next).isEmpty());
+	}
+
+	@Test
+	void changedTripsCompareEveryTripUpdateOfATrip() {
+		TripUpdateIndex oneDay = index(tripUpdate("1", "20260601", 10, stop("CHI", 1, 100)));
+		TripUpdateIndex twoDays = index(
+				tripUpdate("1", "20260601", 10, stop("CHI", 1, 100)),
+				tripUpdate("1", "20260602", 10, stop("CHI", 1, 100)));
+
+		assertEquals(Set.of("1"), TripUpdateIndex.changedTrips(oneDay, twoDays));
+		assertEquals(Set.of("1"), TripUpdateIndex.changedTrips(twoDays, oneDay));
+	}
+}
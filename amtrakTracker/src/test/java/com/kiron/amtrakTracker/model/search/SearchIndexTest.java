@@ -0,0 +1,114 @@
+package com.kiron.amtrakTracker.model.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchIndexTest {
+
+	private static final Set<SearchField> STATION_FIELDS = EnumSet.of(SearchField.STATION_CODE,
+			SearchField.STATION_NAME, SearchField.STATION_ADMIN_AREA);
+
+	private static SearchIndex<String> stations(String... codesAndNames) {
+		SearchIndex.Builder<String> builder = new SearchIndex.Builder<>();
+		for (int i = 0; i < codesAndNames.length; i += 2) {
+			builder.add(codesAndNames[i])
+					.field(SearchField.STATION_CODE, codesAndNames[i])
+					.field(SearchField.STATION_NAME, codesAndNames[i + 1]);
+		}
+		return builder.build();
+	}
+
+	private static List<String> documents(List<SearchIndex.Hit<String>> hits) {
+		return hits.stream().map(SearchIndex.Hit::document).toList();
+	}
+
+	@Test
+	void ranksExactThenPrefixThenWordPrefixThenSubstring() {
+		SearchIndex<String> index = stations(
+				"RNW", "Renewal",
+				"PNC", "Port Newcastle",
+				"NHV", "New Haven",
+				"NEW", "Newark");
+
+		List<SearchIndex.Hit<String>> hits = index.search("new", STATION_FIELDS, 10);
+
+		assertEquals(List.of("NEW", "NHV", "PNC", "RNW"), documents(hits));
+		assertEquals(SearchIndex.MatchKind.EXACT, hits.get(0).kind());
+		assertEquals(SearchField.STATION_CODE, hits.get(0).field());
+		assertEquals(SearchIndex.MatchKind.PREFIX, hits.get(1).kind());
+		assertEquals(SearchIndex.MatchKind.WORD_PREFIX, hits.get(2).kind());
+		assertEquals(SearchIndex.MatchKind.SUBSTRING, hits.get(3).kind());
+	}
+
+	@Test
+	void higherWeightFieldsRankFirstAndTiesKeepInsertionOrder() {
+		SearchIndex<String> index = stations(
+				"TRE", "Alton",
+				"ALB", "Zanesville",
+				"NOR", "Alexandria");
+
+		//A code prefix outranks a name prefix, the two name prefixes stay in the order they were added
+		assertEquals(List.of("ALB", "TRE", "NOR"), documents(index.search("al", STATION_FIELDS, 10)));
+		assertEquals(List.of("TRE", "NOR"), documents(index.search("al", EnumSet.of(SearchField.STATION_NAME), 10)));
+	}
+
+	@Test
+	void keepsOnlyTheBestMatchOfEachDocument() {
+		SearchIndex<String> index = stations("BOS", "Boston South Station");
+
+		List<SearchIndex.Hit<String>> hits = index.search("bos", STATION_FIELDS, 10);
+
+		assertEquals(1, hits.size());
+		assertEquals(SearchIndex.MatchKind.EXACT, hits.get(0).kind());
+		assertEquals(110, hits.get(0).score());
+	}
+
+	@Test
+	void foldsAccentsAndCaseOnBothSides() {
+		SearchIndex<String> index = stations(
+				"MTR", "Montréal",
+				"SLQ", "Sainte-Foy");
+
+		assertEquals(List.of("MTR"), documents(index.search("montreal", STATION_FIELDS, 10)));
+		assertEquals(List.of("MTR"), documents(index.search("MONTRÉAL", STATION_FIELDS, 10)));
+		assertEquals(List.of("SLQ"), documents(index.search("sainte-foy", STATION_FIELDS, 10)));
+		assertEquals("montreal", SearchIndex.fold("  Montréal "));
+	}
+
+	@Test
+	void matchesShortQueriesWithoutTrigrams() {
+		SearchIndex<String> index = stations(
+				"WAS", "Washington",
+				"NYP", "New York");
+
+		assertEquals(List.of("NYP", "WAS"), documents(index.search("n", STATION_FIELDS, 10)));
+		assertEquals(List.of("WAS"), documents(index.search("wa", STATION_FIELDS, 10)));
+	}
+
+	@Test
+	void needsEveryTrigramOfTheQuery() {
+		SearchIndex<String> index = stations("PHL", "Philadelphia");
+
+		assertEquals(List.of("PHL"), documents(index.search("delph", STATION_FIELDS, 10)));
+		assertTrue(index.search("delphx", STATION_FIELDS, 10).isEmpty());
+		assertTrue(index.search("adelphia x", STATION_FIELDS, 10).isEmpty());
+	}
+
+	@Test
+	void limitsResultsAndIgnoresEmptyQueries() {
+		SearchIndex<String> index = stations(
+				"SAC", "Sacramento",
+				"SAS", "San Antonio",
+				"SAN", "San Diego");
+
+		assertEquals(2, index.search("sa", STATION_FIELDS, 2).size());
+		assertTrue(index.search("  ", STATION_FIELDS, 10).isEmpty());
+		assertTrue(index.search("sa", STATION_FIELDS, 0).isEmpty());
+		assertTrue(SearchIndex.<String>empty().search("sa", STATION_FIELDS, 10).isEmpty());
+	}
+}
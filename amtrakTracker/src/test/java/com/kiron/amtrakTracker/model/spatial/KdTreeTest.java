@@ -0,0 +1,127 @@
+package com.kiron.amtrakTracker.model.spatial;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KdTreeTest {
+
+	private static double[][] randomPoints(Random random, int count, int dimensions) {
+		double[][] points = new double[count][dimensions];
+		for (double[] point : points) {
+			for (int d = 0; d < dimensions; d++) {
+				point[d] = random.nextDouble() * 200 - 100;
+			}
+		}
+		return points;
+	}
+
+	private static double distance(double[] a, double[] b) {
+		double sum = 0;
+		for (int d = 0; d < a.length; d++) {
+			sum += (a[d] - b[d]) * (a[d] - b[d]);
+		}
+		return sum;
+	}
+
+	private static double[] bruteForceDistances(double[][] points, double[] query, int count) {
+		return Arrays.stream(points).mapToDouble(point -> distance(point, query)).sorted().limit(count).toArray();
+	}
+
+	private static Set<Integer> bruteForceRange(double[][] points, double[] min, double[] max) {
+		Set<Integer> ids = new HashSet<>();
+		for (int i = 0; i < points.length; i++) {
+			boolean inside = true;
+			for (int d = 0; d < min.length; d++) {
+				inside &= points[i][d] >= min[d] && points[i][d] <= max[d];
+			}
+			if (inside) {
+				ids.add(i);
+			}
+		}
+		return ids;
+	}
+
+	private static void assertNearestMatchesBruteForce(double[][] points, double[] query, int count) {
+		KdTree tree = new KdTree(points);
+		int[] nearest = tree.nearest(query, count);
+
+		//Ids can differ between points at the same distance, so the distances are compared in order
+		double[] expected = bruteForceDistances(points, query, count);
+		double[] actual = Arrays.stream(nearest).mapToDouble(id -> distance(points[id], query)).toArray();
+		assertArrayEquals(expected, actual, 1e-12);
+		assertEquals(nearest.length, IntStream.of(nearest).distinct().count());
+	}
+
+	@Test
+	void nearestMatchesBruteForce() {
+		Random random = new Random(15);
+		for (int dimensions = 2; dimensions <= 3; dimensions++) {
+			double[][] points = randomPoints(random, 2000, dimensions);
+			for (int query = 0; query < 200; query++) {
+				double[] point = randomPoints(random, 1, dimensions)[0];
+				assertNearestMatchesBruteForce(points, point, 1 + random.nextInt(20));
+			}
+		}
+	}
+
+	@Test
+	void nearestHandlesDuplicatePointsAndTies() {
+		//A grid with every point twice, so many points share coordinates and distances
+		double[][] points = new double[2 * 21 * 21][];
+		int i = 0;
+		for (int copy = 0; copy < 2; copy++) {
+			for (int x = -10; x <= 10; x++) {
+				for (int y = -10; y <= 10; y++) {
+					points[i++] = new double[]{x, y};
+				}
+			}
+		}
+		Random random = new Random(15);
+		for (int query = 0; query < 200; query++) {
+			double[] point = {random.nextInt(25) - 12 + (random.nextBoolean() ? 0.5 : 0), random.nextInt(25) - 12};
+			assertNearestMatchesBruteForce(points, point, 1 + random.nextInt(30));
+		}
+	}
+
+	@Test
+	void nearestReturnsEveryPointWhenAskedForMore() {
+		double[][] points = {{0, 0}, {3, 0}, {1, 0}};
+
+		assertArrayEquals(new int[]{0, 2, 1}, new KdTree(points).nearest(new double[]{0, 0}, 10));
+		assertEquals(0, new KdTree(points).nearest(new double[]{0, 0}, 0).length);
+		assertEquals(0, new KdTree(new double[0][]).nearest(new double[]{0, 0}, 5).length);
+	}
+
+	@Test
+	void rangeMatchesBruteForce() {
+		Random random = new Random(15);
+		double[][] points = randomPoints(random, 2000, 2);
+		KdTree tree = new KdTree(points);
+		for (int query = 0; query < 200; query++) {
+			double[] a = randomPoints(random, 1, 2)[0];
+			double[] b = randomPoints(random, 1, 2)[0];
+			double[] min = {Math.min(a[0], b[0]), Math.min(a[1], b[1])};
+			double[] max = {Math.max(a[0], b[0]), Math.max(a[1], b[1])};
+
+			List<Integer> found = new ArrayList<>();
+			tree.range(min, max, found::add);
+
+			assertEquals(bruteForceRange(points, min, max), new HashSet<>(found));
+			assertEquals(found.size(), new HashSet<>(found).size());
+		}
+	}
+
+	@Test
+	void rangeIncludesPointsOnTheBoxEdges() {
+		double[][] points = {{0, 0}, {1, 1}, {1, 2}, {2, 1}, {1, 1}};
+		List<Integer> found = new ArrayList<>();
+
+		new KdTree(points).range(new double[]{1, 1}, new double[]{2, 1}, found::add);
+
+		assertEquals(Set.of(1, 3, 4), new HashSet<>(found));
+	}
+}
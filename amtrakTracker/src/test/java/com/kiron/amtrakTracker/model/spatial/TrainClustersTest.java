@@ -0,0 +1,113 @@
+package com.kiron.amtrakTracker.model.spatial;
+
+import com.kiron.amtrakTracker.model.TrainParsed;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrainClustersTest {
+
+	private static TrainParsed train(String id, double latitude, double longitude, Integer delay) {
+		TrainParsed train = new TrainParsed();
+		train.setId(id);
+		train.setLatitude(latitude);
+		train.setLongitude(longitude);
+		train.setNext_station_delay(delay);
+		return train;
+	}
+
+	private static int total(List<TrainCluster> clusters) {
+		return clusters.stream().mapToInt(TrainCluster::getCount).sum();
+	}
+
+	private static long expectedCells(List<TrainParsed> trains, int zoom) {
+		//Web mercator cells computed independently, four cells per tile on each axis
+		long cells = 1L << (zoom + 2);
+		Set<List<Long>> occupied = new HashSet<>();
+		for (TrainParsed train : trains) {
+			double lat = Math.toRadians(train.getLatitude());
+			double x = (train.getLongitude() + 180) / 360;
+			double y = (1 - Math.log(Math.tan(lat) + 1 / Math.cos(lat)) / Math.PI) / 2;
+			occupied.add(List.of(Math.min(cells - 1, (long) Math.floor(x * cells)),
+					Math.min(cells - 1, (long) Math.floor(y * cells))));
+		}
+		return occupied.size();
+	}
+
+	private final TrainParsed newYork = train("newYork", 40.0, -75.0, 5);
+	private final TrainParsed newark = train("newark", 41.0, -74.0, 12);
+	private final TrainParsed losAngeles = train("losAngeles", 34.0, -118.0, null);
+
+	@Test
+	void groupsTrainsIntoTheSameCellsAsBruteForce() {
+		Random random = new Random(16);
+		List<TrainParsed> trains = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			trains.add(train(String.valueOf(i), random.nextDouble() * 50 + 20, random.nextDouble() * 70 - 130, null));
+		}
+		TrainClusters clusters = new TrainClusters(trains);
+
+		for (int zoom = 0; zoom <= TrainClusters.MAX_ZOOM; zoom++) {
+			List<TrainCluster> atZoom = clusters.getClusters(zoom);
+			assertEquals(expectedCells(trains, zoom), atZoom.size(), "zoom " + zoom);
+			assertEquals(trains.size(), total(atZoom), "zoom " + zoom);
+		}
+	}
+
+	@Test
+	void mergesNearbyTrainsOnlyAtLowZooms() {
+		TrainClusters clusters = new TrainClusters(List.of(newYork, newark, losAngeles));
+
+		List<TrainCluster> country = clusters.getClusters(0);
+		assertEquals(2, country.size());
+		TrainCluster east = country.stream().filter(cluster -> cluster.getCount() == 2).findFirst().orElseThrow();
+		assertEquals(40.5, east.getLatitude(), 0.01);
+		assertEquals(-74.5, east.getLongitude(), 0.01);
+		assertEquals(12, east.getWorst_delay());
+		assertNull(east.getTrain_id());
+
+		assertEquals(3, clusters.getClusters(TrainClusters.MAX_ZOOM).size());
+	}
+
+	@Test
+	void singleTrainClustersKeepTheTrain() {
+		TrainClusters clusters = new TrainClusters(List.of(losAngeles));
+
+		TrainCluster cluster = clusters.getClusters(TrainClusters.MAX_ZOOM).get(0);
+		assertEquals("losAngeles", cluster.getTrain_id());
+		assertEquals(1, cluster.getCount());
+		assertEquals(34.0, cluster.getLatitude());
+		assertEquals(-118.0, cluster.getLongitude());
+		assertNull(cluster.getWorst_delay());
+	}
+
+	@Test
+	void viewportsReturnOnlyOverlappingCells() {
+		TrainClusters clusters = new TrainClusters(List.of(newYork, newark, losAngeles));
+
+		assertEquals(3, total(clusters.getClusters(0, 30, -125, 45, -70)));
+		assertEquals(2, total(clusters.getClusters(TrainClusters.MAX_ZOOM, 39, -76, 42, -73)));
+		assertTrue(clusters.getClusters(TrainClusters.MAX_ZOOM, -10, 10, 10, 20).isEmpty());
+	}
+
+	@Test
+	void viewportsCrossTheAntimeridian() {
+		TrainClusters clusters = new TrainClusters(List.of(
+				train("east", 0.0, 179.9, null),
+				train("west", 0.0, -179.9, null),
+				newYork));
+
+		assertEquals(2, total(clusters.getClusters(TrainClusters.MAX_ZOOM, -1, 179, 1, -179)));
+		assertTrue(clusters.getClusters(TrainClusters.MAX_ZOOM, -1, -10, 1, 10).isEmpty());
+	}
+
+	@Test
+	void clampsZoomLevels() {
+		TrainClusters clusters = new TrainClusters(List.of(newYork, newark, losAngeles));
+
+		assertEquals(clusters.getClusters(0).size(), clusters.getClusters(-3).size());
+		assertEquals(clusters.getClusters(TrainClusters.MAX_ZOOM).size(), clusters.getClusters(99).size());
+	}
+}
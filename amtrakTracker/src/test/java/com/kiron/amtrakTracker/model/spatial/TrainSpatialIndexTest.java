@@ -0,0 +1,54 @@
+package com.kiron.amtrakTracker.model.spatial;
+
+import com.kiron.amtrakTracker.model.TrainParsed;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrainSpatialIndexTest {
+
+	private static TrainParsed train(String id, Double latitude, Double longitude) {
+		TrainParsed train = new TrainParsed();
+		train.setId(id);
+		train.setLatitude(latitude);
+		train.setLongitude(longitude);
+		return train;
+	}
+
+	private static Set<String> ids(List<TrainParsed> trains) {
+		return trains.stream().map(TrainParsed::getId).collect(Collectors.toSet());
+	}
+
+	private final TrainSpatialIndex index = new TrainSpatialIndex(List.of(
+			train("east", 0.0, 179.9),
+			train("west", 0.0, -179.9),
+			train("north", 10.0, 179.9),
+			train("far", 0.0, 165.0),
+			train("unknown", null, null),
+			train("invalid", 95.0, 10.0)));
+
+	@Test
+	void leavesOutTrainsWithoutAValidPosition() {
+		assertEquals(4, index.size());
+	}
+
+	@Test
+	void nearestUsesGreatCircleDistanceAcrossTheAntimeridian() {
+		List<TrainParsed> nearest = index.nearest(0, 180, 3);
+
+		assertEquals(Set.of("east", "west"), ids(nearest.subList(0, 2)));
+		assertEquals("north", nearest.get(2).getId());
+		assertEquals(4, index.nearest(0, 180, 10).size());
+	}
+
+	@Test
+	void withinReadsBoxesOnBothSidesOfTheAntimeridian() {
+		assertEquals(Set.of("east", "west"), ids(index.within(-5, 179, 5, -179)));
+		assertEquals(Set.of("east", "north", "far"), ids(index.within(-5, 160, 15, 180)));
+		assertTrue(index.within(20, -10, 30, 10).isEmpty());
+	}
+}
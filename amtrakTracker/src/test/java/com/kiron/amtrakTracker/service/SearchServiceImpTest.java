@@ -0,0 +1,59 @@
+package com.kiron.amtrakTracker.service;
+
+import com.kiron.amtrakTracker.model.TrainParsed;
+import com.kiron.amtrakTracker.model.TrainSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchServiceImpTest {
+
+	private static TrainParsed train(String id, int number, String name, String railroad) {
+		TrainParsed train = new TrainParsed();
+		train.setId(id);
+		train.setNumber(number);
+		train.setName(name);
+		train.setRailroad(railroad);
+		return train;
+	}
+
+	private static List<String> ids(List<TrainParsed> trains) {
+		return trains.stream().map(TrainParsed::getId).toList();
+	}
+
+	private final SearchServiceImp searchService = new SearchServiceImp();
+
+	private void index(TrainParsed... trains) {
+		searchService.indexTrains(new TrainSnapshot(1, Instant.now(), List.of(trains), null));
+	}
+
+	@Test
+	void returnsATrainMatchingByNameAndNumberOnce() {
+		index(train("a", 66, "Northeast Regional 66", "Amtrak"),
+				train("b", 67, "Northeast Regional", "Amtrak"));
+
+		assertEquals(List.of("a"), ids(searchService.searchTrains("66")));
+	}
+
+	@Test
+	void matchesNamesAndExactNumbers() {
+		index(train("a", 5, "California Zephyr", "Amtrak"),
+				train("b", 50, "Cardinal", "Amtrak"),
+				train("c", 6, "Zephyr Connection 5", "Amtrak"));
+
+		assertEquals(List.of("c", "a"), ids(searchService.searchTrains("5")));
+		assertEquals(List.of("c", "a"), ids(searchService.searchTrains("zephyr")));
+	}
+
+	@Test
+	void searchesRailroadsOnlyWithoutOtherMatches() {
+		index(train("a", 90, "Ocean", "VIA Rail"),
+				train("b", 91, "Via Cascadia", "Amtrak"));
+
+		assertEquals(List.of("b"), ids(searchService.searchTrains("via")));
+		assertEquals(List.of("a"), ids(searchService.searchTrains("rail")));
+	}
+}
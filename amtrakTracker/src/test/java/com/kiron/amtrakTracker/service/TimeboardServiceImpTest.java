@@ -0,0 +1,228 @@
+package com.kiron.amtrakTracker.service;
+
+import com.google.transit.realtime.GtfsRealtime.FeedEntity;
+import com.google.transit.realtime.GtfsRealtime.FeedHeader;
+import com.google.transit.realtime.GtfsRealtime.FeedMessage;
+import com.google.transit.realtime.GtfsRealtime.TripDescriptor;
+import com.google.transit.realtime.GtfsRealtime.TripUpdate;
+import com.google.transit.realtime.GtfsRealtime.TripUpdate.StopTimeEvent;
+import com.google.transit.realtime.GtfsRealtime.TripUpdate.StopTimeUpdate;
+import com.kiron.amtrakTracker.model.StationTimeboard;
+import com.kiron.amtrakTracker.model.TimeboardRow;
+import com.kiron.amtrakTracker.model.gtfs.Route;
+import com.kiron.amtrakTracker.model.gtfs.ScheduleStore;
+import com.kiron.amtrakTracker.model.gtfs.Station;
+import com.kiron.amtrakTracker.model.gtfs.StationCatalog;
+import com.kiron.amtrakTracker.model.gtfs.Trip;
+import com.kiron.amtrakTracker.model.realtime.FeedSnapshot;
+import com.kiron.amtrakTracker.model.realtime.RealtimeAgency;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeboardServiceImpTest {
+
+	/*
+	Schedule and feeds the service reads, set directly by the tests
+	 */
+	private static class TestScheduleService implements ScheduleService {
+		private ScheduleStore store = ScheduleStore.empty();
+		private StationCatalog catalog = StationCatalog.empty();
+
+		@Override
+		public ScheduleStore getStore() {
+			return store;
+		}
+
+		@Override
+		public StationCatalog getStationCatalog() {
+			return catalog;
+		}
+
+		@Override
+		public void rebuild() {
+		}
+	}
+
+	private static class TestFeedSnapshotService implements FeedSnapshotService {
+		private final Map<RealtimeAgency, FeedSnapshot> snapshots = new EnumMap<>(RealtimeAgency.class);
+
+		@Override
+		public FeedSnapshot getSnapshot(RealtimeAgency agency) {
+			return snapshots.getOrDefault(agency, FeedSnapshot.empty(agency));
+		}
+
+		@Override
+		public void refreshFeeds() {
+		}
+	}
+
+	//Stations by stop id and code, and the stops of each trip in order
+	private static final String[][] STATIONS = {{"s1", "NYP"}, {"s2", "WAS"}, {"s3", "BOS"}, {"s4", "TRTO"}};
+	private static final Map<String, List<String>> TRIPS = Map.of(
+			"t1", List.of("s1", "s2"),
+			"t2", List.of("s3", "s1"),
+			"t3", List.of("s4"));
+
+	private final TestScheduleService scheduleService = new TestScheduleService();
+	private final TestFeedSnapshotService feedSnapshotService = new TestFeedSnapshotService();
+	private final TimeboardServiceImp timeboardService = new TimeboardServiceImp();
+	private long feedVersion;
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(timeboardService, "scheduleService", scheduleService);
+		ReflectionTestUtils.setField(timeboardService, "feedSnapshotService", feedSnapshotService);
+		loadSchedule();
+	}
+
+	private void loadSchedule() {
+		List<Station> stations = new ArrayList<>();
+		ScheduleStore.Builder builder = new ScheduleStore.Builder();
+		for (String[] codes : STATIONS) {
+			Station station = new Station();
+			station.setId(codes[0]);
+			station.setCode(codes[1]);
+			station.setName(codes[1]);
+			station.setTime_zone("America/New_York");
+			stations.add(station);
+			builder.addStation(station);
+		}
+		Route route = new Route();
+		route.setRoute_id("r1");
+		route.setRoute_name("Northeast Regional");
+		builder.addRoute(route);
+		int number = 100;
+		for (Map.Entry<String, List<String>> trip : new TreeMap<>(TRIPS).entrySet()) {
+			Trip entity = new Trip();
+			entity.setTrip_id(trip.getKey());
+			entity.setRoute_id("r1");
+			entity.setNumber(number++);
+			builder.addTrip(entity);
+			for (int i = 0; i < trip.getValue().size(); i++) {
+				builder.addStopTime(trip.getKey(), i + 1, 3600 * (8 + i), 3600 * (8 + i), trip.getValue().get(i));
+			}
+		}
+		scheduleService.store = builder.build();
+		scheduleService.catalog = new StationCatalog(scheduleService.catalog.getVersion() + 1, stations);
+	}
+
+	private FeedSnapshot feed(RealtimeAgency agency, Map<String, Long> delays) {
+		//A feed with a TripUpdate for every trip in delays, each stop of the trip delayed that many seconds
+		FeedMessage.Builder feed = FeedMessage.newBuilder()
+				.setHeader(FeedHeader.newBuilder().setGtfsRealtimeVersion("2.0").setTimestamp(++feedVersion));
+		long now = Instant.now().getEpochSecond();
+		for (Map.Entry<String, Long> delay : delays.entrySet()) {
+			TripUpdate.Builder tripUpdate = TripUpdate.newBuilder()
+					.setTrip(TripDescriptor.newBuilder().setTripId(delay.getKey()))
+					.setTimestamp(feedVersion);
+			List<String> stops = TRIPS.get(delay.getKey());
+			for (int i = 0; i < stops.size(); i++) {
+				tripUpdate.addStopTimeUpdate(StopTimeUpdate.newBuilder()
+						.setStopId(stops.get(i))
+						.setStopSequence(i + 1)
+						.setArrival(StopTimeEvent.newBuilder().setTime(now + 3600L * i + delay.getValue())));
+			}
+			feed.addEntity(FeedEntity.newBuilder().setId(delay.getKey()).setTripUpdate(tripUpdate));
+		}
+		FeedSnapshot snapshot = new FeedSnapshot(agency, feedVersion, Instant.now(), feed.build());
+		feedSnapshotService.snapshots.put(agency, snapshot);
+		return snapshot;
+	}
+
+	private Map<String, StationTimeboard> timeboards() {
+		Map<String, StationTimeboard> timeboards = new HashMap<>();
+		for (String[] codes : STATIONS) {
+			timeboards.put(codes[1], timeboardService.getTimeboard(codes[1]));
+		}
+		return timeboards;
+	}
+
+	private static List<Integer> numbers(StationTimeboard timeboard) {
+		return timeboard.getTimeboard().stream().map(TimeboardRow::getNumber).sorted().toList();
+	}
+
+	@Test
+	void buildsEveryStationFromTheScheduleAndFeeds() {
+		feed(RealtimeAgency.AMTRAK, Map.of("t1", 0L, "t2", 0L));
+		feed(RealtimeAgency.VIA, Map.of("t3", 0L));
+
+		timeboardService.rebuildTimeboards();
+
+		Map<String, StationTimeboard> timeboards = timeboards();
+		assertEquals(List.of(100, 101), numbers(timeboards.get("NYP")));
+		assertEquals(List.of(100), numbers(timeboards.get("WAS")));
+		assertEquals(List.of(101), numbers(timeboards.get("BOS")));
+		assertEquals(List.of(102), numbers(timeboards.get("TRTO")));
+		assertNull(timeboardService.getTimeboard("XYZ"));
+	}
+
+	@Test
+	void rebuildsOnlyStationsOfChangedTrips() {
+		feed(RealtimeAgency.AMTRAK, Map.of("t1", 0L, "t2", 0L));
+		timeboardService.rebuildTimeboards();
+		Map<String, StationTimeboard> before = timeboards();
+
+		//t1 is delayed, t2 is the same apart from the feed and update timestamps
+		timeboardService.onFeedSnapshot(feed(RealtimeAgency.AMTRAK, Map.of("t1", 300L, "t2", 0L)));
+
+		Map<String, StationTimeboard> after = timeboards();
+		assertNotSame(before.get("NYP"), after.get("NYP"));
+		assertNotSame(before.get("WAS"), after.get("WAS"));
+		assertSame(before.get("BOS"), after.get("BOS"));
+		assertSame(before.get("TRTO"), after.get("TRTO"));
+		assertTrue(after.get("WAS").getVersion() > before.get("WAS").getVersion());
+		assertEquals(before.get("WAS").getTimeboard().get(0).getActual_time() + 300,
+				after.get("WAS").getTimeboard().get(0).getActual_time());
+	}
+
+	@Test
+	void rebuildsStationsOfTripsThatLeftTheFeed() {
+		feed(RealtimeAgency.AMTRAK, Map.of("t1", 0L, "t2", 0L));
+		timeboardService.rebuildTimeboards();
+		Map<String, StationTimeboard> before = timeboards();
+
+		timeboardService.onFeedSnapshot(feed(RealtimeAgency.AMTRAK, Map.of("t1", 0L)));
+
+		Map<String, StationTimeboard> after = timeboards();
+		assertTrue(after.get("BOS").getTimeboard().isEmpty());
+		assertEquals(List.of(100), numbers(after.get("NYP")));
+		assertSame(before.get("WAS"), after.get("WAS"));
+	}
+
+	@Test
+	void feedsOnlyRebuildStationsOfTheirAgency() {
+		feed(RealtimeAgency.AMTRAK, Map.of("t1", 0L, "t2", 0L));
+		timeboardService.rebuildTimeboards();
+		Map<String, StationTimeboard> before = timeboards();
+
+		timeboardService.onFeedSnapshot(feed(RealtimeAgency.VIA, Map.of("t1", 60L, "t3", 0L)));
+
+		Map<String, StationTimeboard> after = timeboards();
+		assertNotSame(before.get("TRTO"), after.get("TRTO"));
+		assertEquals(List.of(102), numbers(after.get("TRTO")));
+		assertSame(before.get("NYP"), after.get("NYP"));
+		assertSame(before.get("WAS"), after.get("WAS"));
+	}
+
+	@Test
+	void rebuildsEveryStationWhenTheScheduleIsReloaded() {
+		feed(RealtimeAgency.AMTRAK, Map.of("t1", 0L, "t2", 0L));
+		timeboardService.rebuildTimeboards();
+		Map<String, StationTimeboard> before = timeboards();
+
+		loadSchedule();
+		timeboardService.onFeedSnapshot(feedSnapshotService.getSnapshot(RealtimeAgency.AMTRAK));
+
+		Map<String, StationTimeboard> after = timeboards();
+		for (String[] codes : STATIONS) {
+			assertNotSame(before.get(codes[1]), after.get(codes[1]), codes[1]);
+		}
+		assertEquals(List.of(100, 101), numbers(after.get("NYP")));
+	}
+}
@@ -0,0 +1,150 @@
+package com.kiron.amtrakTracker.service;
+
+import com.kiron.amtrakTracker.model.TrainDelta;
+import com.kiron.amtrakTracker.model.TrainParsed;
+import com.kiron.amtrakTracker.model.TrainSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrainRegistryTest {
+
+	private static TrainParsed train(String id, Integer number, Integer delay) {
+		TrainParsed train = new TrainParsed();
+		train.setId(id);
+		train.setNumber(number);
+		train.setNext_station_delay(delay);
+		return train;
+	}
+
+	private static Set<String> ids(List<TrainParsed> trains) {
+		return trains.stream().map(TrainParsed::getId).collect(Collectors.toSet());
+	}
+
+	private final TrainRegistry registry = new TrainRegistry();
+
+	@Test
+	void startsEmpty() {
+		assertEquals(0, registry.getSnapshot().getVersion());
+		assertTrue(registry.getSnapshot().getTrains().isEmpty());
+	}
+
+	@Test
+	void versionsIncreaseAndAreAtLeastThePublishTime() {
+		long before = Instant.now().toEpochMilli();
+		long previous = 0;
+		for (int i = 0; i < 50; i++) {
+			TrainSnapshot snapshot = registry.publish(List.of(train("a", 1, i)));
+			assertTrue(snapshot.getVersion() > previous);
+			assertTrue(snapshot.getVersion() >= before);
+			assertSame(snapshot, registry.getSnapshot());
+			previous = snapshot.getVersion();
+		}
+	}
+
+	@Test
+	void snapshotsSortTrainsByNumberWithUnnumberedTrainsLast() {
+		TrainSnapshot snapshot = registry.publish(List.of(train("c", null, 0), train("b", 20, 0), train("a", 3, 0)));
+
+		assertEquals(List.of("a", "b", "c"), snapshot.getTrains().stream().map(TrainParsed::getId).toList());
+		assertEquals(20, snapshot.getTrain("b").getNumber());
+		assertNull(snapshot.getTrain("d"));
+	}
+
+	@Test
+	void restoresStoredTrainsOnlyBeforeTheFirstPublish() {
+		registry.publishInitial(List.of(train("stored", 1, 0)));
+		TrainSnapshot restored = registry.getSnapshot();
+		assertNotNull(restored.getTrain("stored"));
+
+		registry.publish(List.of(train("fetched", 2, 0)));
+		registry.publishInitial(List.of(train("stored", 1, 0)));
+
+		assertNull(registry.getSnapshot().getTrain("stored"));
+		assertNotNull(registry.getSnapshot().getTrain("fetched"));
+		assertTrue(registry.getSnapshot().getVersion() > restored.getVersion());
+	}
+
+	@Test
+	void doesNotRestoreOverARefreshThatPublishedFirst() {
+		registry.publish(List.of(train("fetched", 2, 0)));
+		long version = registry.getSnapshot().getVersion();
+
+		registry.publishInitial(List.of(train("stored", 1, 0)));
+
+		assertEquals(version, registry.getSnapshot().getVersion());
+		assertNull(registry.getSnapshot().getTrain("stored"));
+	}
+
+	@Test
+	void deltasFromAKeptVersionHoldOnlyWhatChanged() {
+		long from = registry.publish(List.of(train("a", 1, 0), train("b", 2, 0), train("c", 3, 0))).getVersion();
+		registry.publish(List.of(train("a", 1, 5), train("b", 2, 0), train("c", 3, 0)));
+		TrainSnapshot current = registry.publish(List.of(train("a", 1, 5), train("b", 2, 0), train("d", 4, 0)));
+
+		TrainDelta delta = registry.getChangesSince(from, current);
+
+		assertEquals(from, delta.getFrom_version());
+		assertEquals(current.getVersion(), delta.getVersion());
+		assertEquals(Set.of("a", "d"), ids(delta.getUpserted()));
+		assertEquals(List.of("c"), delta.getRemoved());
+		assertEquals(from, registry.getDeltaBase(from, current));
+	}
+
+	@Test
+	void deltasFromTheCurrentVersionAreEmpty() {
+		TrainSnapshot current = registry.publish(List.of(train("a", 1, 0)));
+
+		TrainDelta delta = registry.getChangesSince(current.getVersion(), current);
+
+		assertTrue(delta.isEmpty());
+		assertEquals(current.getVersion(), delta.getFrom_version());
+		assertEquals(current.getVersion(), registry.getDeltaBase(current.getVersion(), current));
+	}
+
+	@Test
+	void unknownVersionsGetEveryTrainFromVersionZero() {
+		long first = registry.publish(List.of(train("a", 1, 0))).getVersion();
+		TrainSnapshot current = registry.publish(List.of(train("a", 1, 0), train("b", 2, 0)));
+
+		for (long version : new long[]{first - 1, current.getVersion() + 1, Long.MAX_VALUE, -5, 0}) {
+			TrainDelta delta = registry.getChangesSince(version, current);
+			assertEquals(0, delta.getFrom_version(), "version " + version);
+			assertEquals(Set.of("a", "b"), ids(delta.getUpserted()));
+			assertTrue(delta.getRemoved().isEmpty());
+			assertEquals(0, registry.getDeltaBase(version, current), "version " + version);
+		}
+	}
+
+	@Test
+	void forgetsVersionsOlderThanTheHistory() {
+		long first = registry.publish(List.of(train("a", 1, 0))).getVersion();
+		long second = registry.publish(List.of(train("a", 1, 1))).getVersion();
+		TrainSnapshot current = registry.getSnapshot();
+		for (int i = 0; i < 29; i++) {
+			current = registry.publish(List.of(train("a", 1, i + 2)));
+		}
+
+		assertEquals(0, registry.getDeltaBase(first, current));
+		assertEquals(0, registry.getChangesSince(first, current).getFrom_version());
+		assertEquals(second, registry.getDeltaBase(second, current));
+		assertEquals(second, registry.getChangesSince(second, current).getFrom_version());
+	}
+
+	@Test
+	void snapshotsCarryTheDeltaFromTheirPreviousSnapshot() {
+		TrainSnapshot first = registry.publish(List.of(train("a", 1, 0), train("b", 2, 0)));
+		TrainSnapshot second = registry.publish(List.of(train("a", 1, 0), train("c", 3, 0)));
+
+		assertEquals(0, first.getDelta().getFrom_version());
+		assertEquals(Set.of("a", "b"), ids(first.getDelta().getUpserted()));
+		assertEquals(first.getVersion(), second.getDelta().getFrom_version());
+		assertEquals(Set.of("c"), ids(second.getDelta().getUpserted()));
+		assertEquals(List.of("b"), second.getDelta().getRemoved());
+	}
+}
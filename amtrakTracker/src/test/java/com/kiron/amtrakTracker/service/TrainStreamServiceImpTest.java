@@ -0,0 +1,187 @@
+package com.kiron.amtrakTracker.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kiron.amtrakTracker.model.TrainParsed;
+import com.kiron.amtrakTracker.model.TrainSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrainStreamServiceImpTest {
+
+	/*
+	A client that records the events it is sent, and only reads as many events as it is given permits for
+	 */
+	private static class TestEmitter extends SseEmitter {
+		private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+		private final Semaphore permits;
+		private volatile boolean completed;
+
+		private TestEmitter(int permits) {
+			this.permits = new Semaphore(permits);
+		}
+
+		@Override
+		public void send(Set<DataWithMediaType> items) {
+			permits.acquireUninterruptibly();
+			StringBuilder event = new StringBuilder();
+			for (DataWithMediaType item : items) {
+				event.append(item.getData());
+			}
+			events.add(event.toString());
+		}
+
+		@Override
+		public synchronized void complete() {
+			completed = true;
+			super.complete();
+		}
+
+		private void awaitBlocked() throws InterruptedException {
+			//Waits until the client's sender is stuck writing an event
+			for (int i = 0; i < 500 && !permits.hasQueuedThreads(); i++) {
+				Thread.sleep(10);
+			}
+			assertTrue(permits.hasQueuedThreads());
+		}
+
+		private String next() throws InterruptedException {
+			String event = events.poll(5, TimeUnit.SECONDS);
+			assertNotNull(event, "no event was sent");
+			return event;
+		}
+	}
+
+	private final TrainRegistry registry = new TrainRegistry();
+	private TestEmitter nextEmitter;
+
+	private final TrainStreamServiceImp streamService = new TrainStreamServiceImp() {
+		@Override
+		SseEmitter newEmitter() {
+			return nextEmitter;
+		}
+	};
+
+	private int delay;
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(streamService, "trainRegistry", registry);
+		ReflectionTestUtils.setField(streamService, "objectMapper", new ObjectMapper());
+		ReflectionTestUtils.setField(streamService, "bufferSize", 2);
+		ReflectionTestUtils.setField(streamService, "timeout", 0L);
+	}
+
+	@AfterEach
+	void closeClients() {
+		streamService.shutdown();
+	}
+
+	private TestEmitter subscribe(int permits) {
+		nextEmitter = new TestEmitter(permits);
+		streamService.subscribe();
+		return nextEmitter;
+	}
+
+	private TrainSnapshot publish() {
+		//Publishes a snapshot in which the one train changed
+		TrainParsed train = new TrainParsed();
+		train.setId("a");
+		train.setNumber(1);
+		train.setNext_station_delay(delay++);
+		return registry.publish(List.of(train));
+	}
+
+	private TrainSnapshot publishAndBroadcast() {
+		TrainSnapshot snapshot = publish();
+		streamService.broadcast(snapshot);
+		return snapshot;
+	}
+
+	private static void assertEvent(String name, TrainSnapshot snapshot, String event) {
+		assertTrue(event.contains("event:" + name + "\n"), event);
+		assertTrue(event.contains("id:" + snapshot.getVersion() + "\n"), event);
+	}
+
+	@Test
+	void clientsGetTheSnapshotThenEveryChange() throws InterruptedException {
+		TrainSnapshot first = publishAndBroadcast();
+		TestEmitter client = subscribe(Integer.MAX_VALUE);
+		assertEvent("snapshot", first, client.next());
+
+		assertEvent("delta", publishAndBroadcast(), client.next());
+
+		//A refresh that changed nothing is not sent
+		TrainSnapshot unchanged = registry.publish(registry.getSnapshot().getTrains());
+		streamService.broadcast(unchanged);
+		assertEvent("delta", publishAndBroadcast(), client.next());
+		assertEquals(1, streamService.getClientCount());
+	}
+
+	@Test
+	void skippedVersionsAreSentAsASnapshot() throws InterruptedException {
+		publishAndBroadcast();
+		TestEmitter client = subscribe(Integer.MAX_VALUE);
+		client.next();
+
+		TrainSnapshot skipped = publish();
+		TrainSnapshot latest = publishAndBroadcast();
+		assertEvent("snapshot", latest, client.next());
+
+		//A snapshot older than one already sent is ignored
+		streamService.broadcast(skipped);
+		assertEvent("delta", publishAndBroadcast(), client.next());
+		assertTrue(client.events.isEmpty());
+	}
+
+	@Test
+	void slowClientsAreResyncedWithTheLatestSnapshot() throws InterruptedException {
+		publishAndBroadcast();
+		TestEmitter slow = subscribe(0);
+		slow.awaitBlocked();
+
+		//Two deltas fill the buffer, the third replaces them with a snapshot
+		publishAndBroadcast();
+		publishAndBroadcast();
+		TrainSnapshot overflow = publishAndBroadcast();
+		slow.permits.release(Integer.MAX_VALUE / 2);
+
+		assertTrue(slow.next().contains("event:snapshot\n"));
+		assertEvent("snapshot", overflow, slow.next());
+		assertEquals(1, streamService.getClientCount());
+		assertEvent("delta", publishAndBroadcast(), slow.next());
+		assertFalse(slow.completed);
+	}
+
+	@Test
+	void clientsStillBehindAfterAResyncAreDropped() throws InterruptedException {
+		publishAndBroadcast();
+		TestEmitter fast = subscribe(Integer.MAX_VALUE);
+		fast.next();
+		TestEmitter slow = subscribe(0);
+		slow.awaitBlocked();
+
+		//The third delta resyncs the slow client, the fifth finds it still behind
+		for (int i = 0; i < 5; i++) {
+			assertEvent("delta", publishAndBroadcast(), fast.next());
+		}
+
+		assertTrue(slow.completed);
+		assertEquals(1, streamService.getClientCount());
+		slow.permits.release(Integer.MAX_VALUE / 2);
+		assertEvent("delta", publishAndBroadcast(), fast.next());
+		slow.next();
+		assertNull(slow.events.poll(200, TimeUnit.MILLISECONDS));
+	}
+}